@@ -0,0 +1,107 @@
+package iuh.fit.se.phazelsound.benchmark;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * So file kết quả JMH ({@code -rf json}) với baseline đã commit và trả exit code 1 nếu có benchmark chậm hơn ngưỡng.
+ * Chỉ tính là chậm đi khi chênh lệch vượt cả ngưỡng phần trăm lẫn tổng sai số của hai lần đo, tránh báo nhầm vì nhiễu.
+ * Benchmark chưa có trong baseline chỉ được liệt kê; chưa có baseline thì bỏ qua.
+ * Chạy tự động sau JMH trong profile {@code benchmark}, tham số: file kết quả, file baseline, ngưỡng, cập nhật baseline:
+ * <pre>
+ * mvn -B -Pbenchmark -DskipTests verify -Djmh.regression-threshold=0.10
+ * mvn -B -Pbenchmark -DskipTests verify -Djmh.update-baseline=true
+ * </pre>
+ */
+public class BenchmarkRegressionCheck {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    public static void main(String[] args) throws IOException {
+        Path resultFile = Path.of(args.length > 0 ? args[0] : "target/jmh-result.json");
+        Path baselineFile = Path.of(args.length > 1 ? args[1] : "src/jmh/jmh-baseline.json");
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        boolean updateBaseline = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (!Files.exists(resultFile)) {
+            System.out.println("Không có kết quả JMH tại " + resultFile + ", bỏ qua kiểm tra hồi quy");
+            return;
+        }
+        if (updateBaseline) {
+            Files.createDirectories(baselineFile.toAbsolutePath().getParent());
+            Files.copy(resultFile, baselineFile, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Đã cập nhật baseline " + baselineFile);
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            System.out.println("Chưa có baseline " + baselineFile + ", bỏ qua kiểm tra hồi quy");
+            return;
+        }
+
+        Map<String, Score> baseline = read(baselineFile);
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, Score> entry : read(resultFile).entrySet()) {
+            Score current = entry.getValue();
+            Score previous = baseline.get(entry.getKey());
+            if (previous == null || !previous.mode().equals(current.mode())) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", current.score(), "new");
+                continue;
+            }
+            // thrpt càng cao càng tốt, các mode còn lại (avgt, sample, ss) càng thấp càng tốt
+            double worse = "thrpt".equals(current.mode())
+                    ? previous.score() - current.score()
+                    : current.score() - previous.score();
+            double change = worse / previous.score();
+            boolean regressed = change > threshold && worse > previous.error() + current.error();
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), previous.score(), current.score(),
+                    (current.score() / previous.score() - 1) * 100, regressed ? "  REGRESSION" : "");
+            if (regressed) {
+                regressions.add(entry.getKey());
+            }
+        }
+
+        if (!regressions.isEmpty()) {
+            System.out.printf("%d benchmark chậm hơn baseline quá %.0f%%: %s%n", regressions.size(), threshold * 100,
+                    regressions);
+            System.exit(1);
+        }
+    }
+
+    // Key = tên benchmark + các @Param đã sắp xếp, để cùng một cấu hình khớp nhau giữa hai file
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : MAPPER.readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asString());
+            JsonNode params = run.path("params");
+            if (params.isObject()) {
+                Map<String, String> sorted = new TreeMap<>();
+                params.properties().forEach(param -> sorted.put(param.getKey(), param.getValue().asString()));
+                key.append(sorted);
+            }
+            JsonNode metric = run.path("primaryMetric");
+            scores.put(key.toString(), new Score(run.path("mode").asString(), metric.path("score").asDouble(),
+                    error(metric.path("scoreError"))));
+        }
+        return scores;
+    }
+
+    // JMH ghi "NaN" khi chỉ có một iteration
+    private static double error(JsonNode node) {
+        double error = node.isNumber() ? node.asDouble() : Double.NaN;
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private record Score(String mode, double score, double error) {
+    }
+}
@@ -0,0 +1,84 @@
+package iuh.fit.se.phazelsound.benchmark;
+
+import iuh.fit.se.phazelsound.common.mail.EmailType;
+import iuh.fit.se.phazelsound.common.mail.OtpMailRenderer;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh dựng một email OTP theo cách cũ (Thymeleaf mỗi lần + MimeMessageHelper multipart)
+ * với template đã biên dịch sẵn + message một part. Có ghi message ra byte để tính cả chi phí serialize MIME.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmailRenderBenchmark {
+
+    private static final String TO = "bench@phazel.dev";
+    private static final String NAME = "Nguyễn Văn Bình";
+    private static final String OTP = "123456";
+
+    private JavaMailSenderImpl mailSender;
+    private SpringTemplateEngine templateEngine;
+    private OtpMailRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        mailSender = new JavaMailSenderImpl();
+
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        renderer = new OtpMailRenderer(templateEngine);
+        ReflectionTestUtils.invokeMethod(renderer, "init");
+    }
+
+    @Benchmark
+    public byte[] thymeleafMultipart() throws MessagingException, IOException {
+        Context context = new Context();
+        context.setVariable("name", NAME);
+        context.setVariable("otp", OTP);
+        String html = templateEngine.process(EmailType.REGISTER_OTP.getTemplate(), context);
+
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
+                StandardCharsets.UTF_8.name());
+        helper.setTo(TO);
+        helper.setSubject(EmailType.REGISTER_OTP.getSubject());
+        helper.setText(html, true);
+        return serialize(message);
+    }
+
+    @Benchmark
+    public byte[] compiledSinglePart() throws MessagingException, IOException {
+        MimeMessage message = mailSender.createMimeMessage();
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(TO, true));
+        message.setHeader("Subject", renderer.encodedSubject(EmailType.REGISTER_OTP));
+        message.setText(renderer.render(EmailType.REGISTER_OTP, NAME, OTP), StandardCharsets.UTF_8.name(), "html");
+        return serialize(message);
+    }
+
+    private static byte[] serialize(MimeMessage message) throws MessagingException, IOException {
+        message.saveChanges();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        message.writeTo(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,109 @@
+package iuh.fit.se.phazelsound.benchmark;
+
+import iuh.fit.se.phazelsound.modules.auth.entity.AuthProvider;
+import iuh.fit.se.phazelsound.modules.auth.entity.UserRole;
+import iuh.fit.se.phazelsound.modules.auth.security.SigningKeyRing;
+import iuh.fit.se.phazelsound.modules.auth.service.JwtService;
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ký và verify access token với RS256 (mặc định) và HS256 (legacy).
+ * "verifyUncached" xoay vòng qua nhiều token với cache verify gần như bằng 0 để đo đúng chi phí kiểm chữ ký;
+ * "verifyCached" là đường thường gặp khi cùng một token đi qua nhiều request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    private static final String SECRET = "and0LWJlbmNobWFyay1zZWNyZXQta2V5LWZvci1oczI1Ni1zaWduaW5nLWJlbmNo";
+    private static final int TOKENS = 1024;
+
+    @Param({"RS256", "HS256"})
+    public String algorithm;
+
+    private User user;
+    private JwtService jwtService;
+    private JwtService uncachedJwtService;
+    private String token;
+    private String[] tokens;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(any())).thenReturn(Map.of());
+
+        SigningKeyRing keyRing = new SigningKeyRing(redisTemplate, JsonMapper.builder().build());
+        ReflectionTestUtils.setField(keyRing, "rotationIntervalMillis", 86_400_000L);
+        ReflectionTestUtils.setField(keyRing, "keySize", 2048);
+        ReflectionTestUtils.setField(keyRing, "maxTokenLifetimeMillis", 604_800_000L);
+        ReflectionTestUtils.setField(keyRing, "unknownKidReloadMillis", 60_000L);
+        ReflectionTestUtils.invokeMethod(keyRing, "init");
+
+        jwtService = jwtService(keyRing, 10_000);
+        // Cache nhỏ nhất có thể (mỗi stripe một entry), TOKENS token xoay vòng nên gần như lần nào cũng miss
+        uncachedJwtService = jwtService(keyRing, 1);
+
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .email("bench@phazel.dev")
+                .fullName("Bench User")
+                .role(UserRole.USER)
+                .status(UserStatus.ACTIVE)
+                .provider(AuthProvider.LOCAL)
+                .build();
+        token = jwtService.generateAccessToken(user);
+        tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = jwtService.generateAccessToken(user);
+        }
+    }
+
+    private JwtService jwtService(SigningKeyRing keyRing, int verifiedCacheSize) {
+        JwtService service = new JwtService(keyRing, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "secretKey", SECRET);
+        ReflectionTestUtils.setField(service, "signingAlgorithm", algorithm);
+        ReflectionTestUtils.setField(service, "acceptHs256", true);
+        ReflectionTestUtils.setField(service, "jwtExpiration", 900_000L);
+        ReflectionTestUtils.setField(service, "refreshExpiration", 604_800_000L);
+        ReflectionTestUtils.setField(service, "verifiedCacheSize", verifiedCacheSize);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtService.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public Claims verifyUncached() {
+        next = (next + 1) % TOKENS;
+        return uncachedJwtService.parseToken(tokens[next]);
+    }
+
+    @Benchmark
+    public Claims verifyCached() {
+        return jwtService.parseToken(token);
+    }
+}
@@ -0,0 +1,103 @@
+package iuh.fit.se.phazelsound.benchmark;
+
+import iuh.fit.se.phazelsound.common.annotation.RateLimit;
+import iuh.fit.se.phazelsound.common.ratelimit.RedisRateLimiter;
+import iuh.fit.se.phazelsound.modules.auth.service.OtpStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Properties;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * So số byte Redis tốn cho mỗi entry OTP / bộ đếm rate limit giữa layout key-riêng hiện tại và layout hash bucket
+ * ({@code application.redis.compact-layout}). Ghi bằng chính {@link OtpStore} và {@link RedisRateLimiter}, đo chênh lệch
+ * {@code used_memory}. Cần Redis 7.4+ thật, database chỉ định phải trống:
+ * <pre>
+ * REDIS_HOST=localhost REDIS_PORT=6379 REDIS_DB=15 mvn -B -Pbenchmark test-compile exec:java \
+ *     -Dexec.classpathScope=test -Dexec.mainClass=iuh.fit.se.phazelsound.benchmark.KeyspaceMemoryReport \
+ *     -Dexec.args="1000000"
+ * </pre>
+ * Tham số: số entry (mặc định 200000), số bucket (mặc định entry / 64).
+ */
+public class KeyspaceMemoryReport {
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int buckets = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(1, entries / 64);
+
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                env("REDIS_HOST", "localhost"), Integer.parseInt(env("REDIS_PORT", "6379")));
+        configuration.setDatabase(Integer.parseInt(env("REDIS_DB", "15")));
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long size = connection.serverCommands().dbSize();
+            if (size != null && size > 0) {
+                throw new IllegalStateException("Redis database " + configuration.getDatabase()
+                        + " is not empty; choose an empty one with REDIS_DB");
+            }
+            StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+
+            System.out.printf("%-12s %-9s %10s %10s %10s %12s%n",
+                    "family", "layout", "entries", "buckets", "keys", "bytes/entry");
+            for (boolean compact : new boolean[] {false, true}) {
+                OtpStore otpStore = new OtpStore(redisTemplate, new SimpleMeterRegistry());
+                configure(otpStore, compact, buckets);
+                ReflectionTestUtils.setField(otpStore, "otpExpirationMinutes", 5L);
+                ReflectionTestUtils.setField(otpStore, "maxAttempts", 5);
+                report(connection, "otp", compact, entries, buckets,
+                        i -> otpStore.issue(OtpStore.Purpose.REGISTER, "user" + i + "@phazel.dev"));
+
+                RedisRateLimiter rateLimiter = new RedisRateLimiter(redisTemplate);
+                configure(rateLimiter, compact, buckets);
+                report(connection, "rate-limit", compact, entries, buckets,
+                        i -> rateLimiter.tryAcquire(RateLimit.Algorithm.FIXED_WINDOW,
+                                "login:10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff),
+                                100, 600_000, 1));
+            }
+        } finally {
+            connectionFactory.destroy();
+        }
+    }
+
+    private static void report(RedisConnection connection, String family, boolean compact, int entries, int buckets,
+                               IntConsumer writer) {
+        connection.serverCommands().flushDb();
+        long before = usedMemory(connection);
+        // Lettuce dùng chung một kết nối nên các lệnh song song được pipeline tự động
+        IntStream.range(0, entries).parallel().forEach(writer);
+        long after = usedMemory(connection);
+        Long keys = connection.serverCommands().dbSize();
+        connection.serverCommands().flushDb();
+
+        String bytesPerEntry = before < 0 || after < 0
+                ? "n/a"
+                : String.format("%.1f", (after - before) / (double) entries);
+        System.out.printf("%-12s %-9s %10d %10s %10d %12s%n", family, compact ? "compact" : "per-key", entries,
+                compact ? String.valueOf(buckets) : "-", keys, bytesPerEntry);
+    }
+
+    private static void configure(Object target, boolean compact, int buckets) {
+        ReflectionTestUtils.setField(target, "compactLayout", compact);
+        ReflectionTestUtils.setField(target, "compactBuckets", buckets);
+    }
+
+    private static long usedMemory(RedisConnection connection) {
+        // Server không báo used_memory (ví dụ Redis giả lập) thì chỉ in số key
+        Properties info = connection.serverCommands().info("memory");
+        String usedMemory = info == null ? null : info.getProperty("used_memory");
+        return usedMemory == null ? -1 : Long.parseLong(usedMemory.trim());
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,153 @@
+package iuh.fit.se.phazelsound.benchmark;
+
+import iuh.fit.se.phazelsound.common.service.EmailService;
+import iuh.fit.se.phazelsound.modules.auth.dto.request.LoginUserRequest;
+import iuh.fit.se.phazelsound.modules.auth.dto.response.AuthResponse;
+import iuh.fit.se.phazelsound.modules.auth.entity.AuthProvider;
+import iuh.fit.se.phazelsound.modules.auth.entity.UserRole;
+import iuh.fit.se.phazelsound.modules.auth.security.SigningKeyRing;
+import iuh.fit.se.phazelsound.modules.auth.security.TokenRevocationService;
+import iuh.fit.se.phazelsound.modules.auth.service.JwtService;
+import iuh.fit.se.phazelsound.modules.auth.service.LoginAttemptService;
+import iuh.fit.se.phazelsound.modules.auth.service.OtpStore;
+import iuh.fit.se.phazelsound.modules.auth.service.RefreshTokenService;
+import iuh.fit.se.phazelsound.modules.auth.service.impl.AuthServiceImpl;
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import iuh.fit.se.phazelsound.modules.user.service.IdentifierResolver;
+import iuh.fit.se.phazelsound.modules.user.service.UserLookupService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * So sánh luồng login cũ (tự tra user rồi authenticate, tra lần hai trong provider) với luồng hiện tại.
+ * Repository giả lập độ trễ một query Postgres; "queriesPerLogin" là số query trên mỗi lần login
+ * (xem theo từng iteration, bảng tổng kết của JMH cộng dồn counter kiểu EVENTS qua các iteration).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoginBenchmark {
+
+    private static final String IDENTIFIER = "bench@phazel.dev";
+    private static final String PASSWORD = "secret123";
+
+    @Param({"4"})
+    public int bcryptStrength;
+
+    @Param({"300"})
+    public long queryLatencyMicros;
+
+    private UserRepository userRepository;
+    private AuthenticationManager authenticationManager;
+    private JwtService jwtService;
+    private RefreshTokenService refreshTokenService;
+    private AuthServiceImpl authService;
+    private LoginUserRequest request;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class QueryCounter {
+        private long queries;
+        private long logins;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            queries = 0;
+            logins = 0;
+        }
+
+        public double queriesPerLogin() {
+            return logins == 0 ? 0 : (double) queries / logins;
+        }
+    }
+
+    private static final ThreadLocal<QueryCounter> CURRENT = new ThreadLocal<>();
+
+    @Setup
+    public void setUp() {
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(bcryptStrength);
+        User user = User.builder()
+                .id(UUID.randomUUID())
+                .email(IDENTIFIER)
+                .fullName("Bench User")
+                .password(passwordEncoder.encode(PASSWORD))
+                .role(UserRole.USER)
+                .status(UserStatus.ACTIVE)
+                .provider(AuthProvider.LOCAL)
+                .build();
+
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(anyString())).thenAnswer(invocation -> {
+            QueryCounter counter = CURRENT.get();
+            if (counter != null) {
+                counter.queries++;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(queryLatencyMicros));
+            return Optional.of(user);
+        });
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(username ->
+                userRepository.findByEmail(username)
+                        .orElseThrow(() -> new UsernameNotFoundException("User not found")));
+        provider.setPasswordEncoder(passwordEncoder);
+        authenticationManager = new ProviderManager(provider);
+
+        // Ký HS256 để kết quả chỉ phản ánh phần tra cứu user, chi phí ký RS256 đo riêng
+        jwtService = new JwtService(mock(SigningKeyRing.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "secretKey", "bG9naW4tYmVuY2htYXJrLXNlY3JldC1rZXktZm9yLWhzMjU2LXNpZ25pbmc=");
+        ReflectionTestUtils.setField(jwtService, "signingAlgorithm", "HS256");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 900_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604_800_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 1024);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        // Redis giả (execute trả null): chỉ đo chi phí ký refresh token, giống nhau ở cả hai luồng
+        refreshTokenService = new RefreshTokenService(mock(StringRedisTemplate.class), jwtService);
+
+        authService = new AuthServiceImpl(userRepository, mock(UserLookupService.class), passwordEncoder,
+                mock(OtpStore.class), mock(EmailService.class), jwtService, authenticationManager,
+                mock(LoginAttemptService.class), refreshTokenService, mock(TokenRevocationService.class),
+                new IdentifierResolver());
+        request = new LoginUserRequest(IDENTIFIER, PASSWORD);
+    }
+
+    @Benchmark
+    public AuthResponse legacyLogin(QueryCounter counter) {
+        CURRENT.set(counter);
+        counter.logins++;
+        User user = userRepository.findByEmail(IDENTIFIER)
+                .orElseThrow(() -> new RuntimeException("Not found user."));
+        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(user.getEmail(), PASSWORD));
+        return AuthResponse.builder()
+                .accessToken(jwtService.generateAccessToken(user))
+                .refreshToken(refreshTokenService.issue(user))
+                .build();
+    }
+
+    @Benchmark
+    public AuthResponse singleLookupLogin(QueryCounter counter) {
+        CURRENT.set(counter);
+        counter.logins++;
+        return authService.login(request);
+    }
+}
@@ -0,0 +1,26 @@
+package iuh.fit.se.phazelsound.benchmark;
+
+import iuh.fit.se.phazelsound.modules.auth.service.OtpStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sinh mã OTP 6 chữ số từ SecureRandom dùng chung; bản nhiều thread cho thấy tranh chấp trên nguồn ngẫu nhiên.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OtpBenchmark {
+
+    @Benchmark
+    public String generate() {
+        return OtpStore.generate();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateContended() {
+        return OtpStore.generate();
+    }
+}
@@ -0,0 +1,81 @@
+package iuh.fit.se.phazelsound.benchmark;
+
+import com.github.fppt.jedismock.RedisServer;
+import iuh.fit.se.phazelsound.common.annotation.RateLimit;
+import iuh.fit.se.phazelsound.common.ratelimit.RateLimitDecision;
+import iuh.fit.se.phazelsound.common.ratelimit.RedisRateLimiter;
+import iuh.fit.se.phazelsound.common.ratelimit.ResilientRateLimiter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quyết định rate limit mà RateLimitAspect gọi cho mỗi request, chạy trên Redis giả lập trong process (jedis-mock).
+ * "allowed" đi hết đường EVALSHA tới Redis; "blocked" là key đang bị chặn, được near-cache từ chối tại chỗ.
+ * Số tuyệt đối phản ánh Redis giả lập chứ không phải Redis thật, dùng để so sánh tương đối giữa các lần chạy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RateLimitBenchmark {
+
+    private static final int KEYS = 4096;
+    private static final long WINDOW_MILLIS = 60_000;
+
+    @Param({"FIXED_WINDOW", "SLIDING_WINDOW", "TOKEN_BUCKET"})
+    public RateLimit.Algorithm algorithm;
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private ResilientRateLimiter rateLimiter;
+    private String[] keys;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        redisServer = RedisServer.newRedisServer(0);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        rateLimiter = new ResilientRateLimiter(new RedisRateLimiter(new StringRedisTemplate(connectionFactory)));
+        ReflectionTestUtils.setField(rateLimiter, "nearCacheSize", 100_000);
+        ReflectionTestUtils.setField(rateLimiter, "localMaxKeys", 100_000);
+        ReflectionTestUtils.setField(rateLimiter, "failureThreshold", 5);
+        ReflectionTestUtils.setField(rateLimiter, "openMillis", 10_000L);
+        ReflectionTestUtils.invokeMethod(rateLimiter, "init");
+
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "login:10.0." + (i >>> 8) + "." + (i & 0xff);
+        }
+        // Dùng hết hạn mức của key nóng để các lần gọi sau rơi vào near-cache
+        rateLimiter.tryAcquire(algorithm, "login:hot", 1, WINDOW_MILLIS);
+        rateLimiter.tryAcquire(algorithm, "login:hot", 1, WINDOW_MILLIS);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ReflectionTestUtils.invokeMethod(rateLimiter, "shutdown");
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Benchmark
+    public RateLimitDecision allowed() {
+        next = (next + 1) % KEYS;
+        return rateLimiter.tryAcquire(algorithm, keys[next], 1_000_000_000L, WINDOW_MILLIS);
+    }
+
+    @Benchmark
+    public RateLimitDecision blocked() {
+        return rateLimiter.tryAcquire(algorithm, "login:hot", 1, WINDOW_MILLIS);
+    }
+}
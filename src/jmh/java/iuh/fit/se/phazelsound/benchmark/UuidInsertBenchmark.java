@@ -0,0 +1,103 @@
+package iuh.fit.se.phazelsound.benchmark;
+
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Đo tốc độ insert hàng loạt và kích thước index khoá chính khi id là UUID v4 ngẫu nhiên so với UUIDv7 tăng dần.
+ * Cần Postgres thật qua DB_URL / DB_USERNAME / DB_PASSWORD (giống app), chạy riêng:
+ * {@code -Djmh.args="UuidInsertBenchmark"}. Kích thước index in ra ở cuối mỗi trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+public class UuidInsertBenchmark {
+
+    @Param({"v4", "v7"})
+    public String strategy;
+
+    // Số dòng có sẵn trước khi đo, để index đủ lớn vượt shared_buffers như bảng thật
+    @Param({"500000"})
+    public int preloadRows;
+
+    @Param({"10000"})
+    public int batchRows;
+
+    private Connection connection;
+    private String table;
+    private Supplier<UUID> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getenv("DB_URL");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("DB_URL is required for UuidInsertBenchmark");
+        }
+        connection = DriverManager.getConnection(url, System.getenv("DB_USERNAME"), System.getenv("DB_PASSWORD"));
+        connection.setAutoCommit(false);
+        ids = "v7".equals(strategy) ? () -> UuidVersion7Strategy.INSTANCE.generateUuid(null) : UUID::randomUUID;
+        table = "bench_uuid_" + strategy;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists " + table);
+            statement.execute("create table " + table + " (id uuid primary key, payload varchar(64) not null)");
+        }
+        connection.commit();
+        for (int loaded = 0; loaded < preloadRows; loaded += batchRows) {
+            insertBatch(Math.min(batchRows, preloadRows - loaded));
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("vacuum analyze " + table);
+        } catch (SQLException e) {
+            // vacuum không chạy trong transaction; bỏ qua nếu driver không cho
+        }
+    }
+
+    @Benchmark
+    public int insertBatch() throws SQLException {
+        return insertBatch(batchRows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet sizes = statement.executeQuery("select pg_relation_size('" + table + "_pkey'), "
+                     + "pg_relation_size('" + table + "'), count(*) from " + table)) {
+            if (sizes.next()) {
+                long indexBytes = sizes.getLong(1);
+                long rows = sizes.getLong(3);
+                System.out.printf("%n[%s] rows=%d pk index=%.1f MB (%.1f bytes/row), heap=%.1f MB%n", strategy, rows,
+                        indexBytes / 1048576.0, (double) indexBytes / rows, sizes.getLong(2) / 1048576.0);
+            }
+            statement.execute("drop table if exists " + table);
+            connection.commit();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private int insertBatch(int rows) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into " + table + " (id, payload) values (?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setObject(1, ids.get());
+                insert.setString(2, "user-" + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        return rows;
+    }
+}
@@ -17,4 +17,15 @@ public @interface RateLimit {
     long period() default 180;
 
     TimeUnit unit() default TimeUnit.SECONDS;
+
+    Algorithm algorithm() default Algorithm.FIXED_WINDOW;
+
+    enum Algorithm {
+        // Đếm số request trong cửa sổ cố định, reset khi key hết hạn
+        FIXED_WINDOW,
+        // Log thời điểm từng request, luôn xét đúng {period} gần nhất
+        SLIDING_WINDOW,
+        // Bucket {count} token, nạp đầy lại sau mỗi {period}, cho phép burst
+        TOKEN_BUCKET
+    }
 }
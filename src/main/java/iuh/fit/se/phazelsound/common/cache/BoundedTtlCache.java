@@ -0,0 +1,138 @@
+package iuh.fit.se.phazelsound.common.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Cache in-heap có giới hạn kích thước, mỗi entry có hạn dùng (epoch millis) riêng.
+ * Chia thành nhiều stripe LRU, mỗi stripe một lock, để các thread không tranh nhau một lock chung.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe<K, V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    public BoundedTtlCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        int perStripe = Math.max(1, maxSize / STRIPES);
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>(perStripe);
+        }
+    }
+
+    public V get(K key) {
+        Stripe<K, V> stripe = stripeFor(key);
+        long now = System.currentTimeMillis();
+        stripe.lock.lock();
+        try {
+            Entry<V> entry = stripe.map.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt <= now) {
+                stripe.map.remove(key);
+                return null;
+            }
+            return entry.value;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        Stripe<K, V> stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            stripe.map.put(key, new Entry<>(value, expiresAtMillis));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Trả về entry còn hạn, hoặc tạo mới bằng {@code factory} trong cùng lock của stripe.
+     */
+    public V getOrCreate(K key, Supplier<V> factory, long expiresAtMillis) {
+        Stripe<K, V> stripe = stripeFor(key);
+        long now = System.currentTimeMillis();
+        stripe.lock.lock();
+        try {
+            Entry<V> entry = stripe.map.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                return entry.value;
+            }
+            V value = factory.get();
+            stripe.map.put(key, new Entry<>(value, expiresAtMillis));
+            return value;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        Stripe<K, V> stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            stripe.map.remove(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void clear() {
+        for (Stripe<K, V> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.map.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.map.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe<K, V> stripeFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private static final class Stripe<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<K, Entry<V>> map;
+
+        private Stripe(int capacity) {
+            this.map = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+    }
+}
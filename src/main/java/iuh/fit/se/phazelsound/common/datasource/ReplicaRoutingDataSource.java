@@ -0,0 +1,182 @@
+package iuh.fit.se.phazelsound.common.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Transaction read-only đi tới replica (round-robin giữa các replica đang khoẻ), mọi thứ khác đi tới primary.
+ * Phải đặt sau {@code LazyConnectionDataSourceProxy} để connection chỉ được lấy sau khi cờ read-only đã được đặt.
+ * Replica lỗi khi lấy connection hoặc trễ quá {@code maxLagMillis} bị loại cho tới lần health check tiếp theo thấy nó ổn.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    // Postgres standby: 0 khi đã replay hết WAL nhận được (tránh báo trễ giả khi primary không có ghi); null trên primary
+    private static final String LAG_QUERY = "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 "
+            + "else extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000 end";
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final long maxLagMillis;
+    private final Set<String> down = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile List<String> healthy;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long maxLagMillis) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLagMillis = maxLagMillis;
+        this.healthy = List.copyOf(this.replicas.keySet());
+
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Chạy {@code action} với mọi truy vấn trên thread hiện tại đi tới primary, kể cả transaction read-only.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (FORCE_PRIMARY.get() != null || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        List<String> candidates = healthy;
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        // Replica không cho connection thì loại nó ra và thử replica khác; hết replica thì về primary
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Object key = determineCurrentLookupKey();
+            if (PRIMARY.equals(key)) {
+                break;
+            }
+            try {
+                return replicas.get(key).getConnection();
+            } catch (SQLException e) {
+                markDown((String) key, e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Kiểm tra từng replica: lấy được connection và (nếu bật) độ trễ replay không vượt {@code maxLagMillis}.
+     */
+    @Scheduled(fixedDelayString = "${application.datasource.replica-health-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            String problem = probe(replica.getValue());
+            if (problem == null) {
+                markUp(replica.getKey());
+            } else {
+                markDown(replica.getKey(), problem);
+            }
+        }
+    }
+
+    public List<String> healthyReplicas() {
+        return healthy;
+    }
+
+    @Override
+    public void close() {
+        for (DataSource dataSource : replicas.values()) {
+            closeQuietly(dataSource);
+        }
+        closeQuietly(primary);
+    }
+
+    private String probe(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isValid(2)) {
+                return "connection is not valid";
+            }
+            if (maxLagMillis <= 0) {
+                return null;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                double lag = rs.next() ? rs.getDouble(1) : 0;
+                return lag > maxLagMillis ? "replication lag " + Math.round(lag) + "ms" : null;
+            }
+        } catch (SQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    private void markDown(String key, String reason) {
+        if (down.add(key)) {
+            log.warn("Tạm ngưng đọc từ replica {}: {}", key, reason);
+            refreshHealthy();
+        }
+    }
+
+    private void markUp(String key) {
+        if (down.remove(key)) {
+            log.info("Replica {} hoạt động trở lại", key);
+            refreshHealthy();
+        }
+    }
+
+    private void refreshHealthy() {
+        List<String> candidates = new ArrayList<>(replicas.size());
+        for (String key : replicas.keySet()) {
+            if (!down.contains(key)) {
+                candidates.add(key);
+            }
+        }
+        healthy = List.copyOf(candidates);
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.debug("Bỏ qua lỗi khi đóng pool: {}", e.getMessage());
+            }
+        }
+    }
+}
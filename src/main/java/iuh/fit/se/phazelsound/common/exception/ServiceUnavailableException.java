@@ -0,0 +1,18 @@
+package iuh.fit.se.phazelsound.common.exception;
+
+/**
+ * Hệ thống đang quá tải và từ chối ngay thay vì bắt request chờ; client nên thử lại sau.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,54 @@
+package iuh.fit.se.phazelsound.common.lock;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Khoá loại trừ giữa các node trên Redis: {@code SET NX PX} với token ngẫu nhiên,
+ * nhả khoá bằng script so token rồi mới xoá. Khoá tự hết hạn nếu node giữ khoá chết.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RedisLock {
+
+    private static final String PREFIX = "LOCK:";
+    private static final RedisScript<Long> RELEASE = releaseScript();
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * @return token để nhả khoá, hoặc {@code null} nếu node khác đang giữ khoá
+     */
+    public String tryLock(String name, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(PREFIX + name, token, ttl);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    public void unlock(String name, String token) {
+        try {
+            redisTemplate.execute(RELEASE, List.of(PREFIX + name), token);
+        } catch (DataAccessException e) {
+            // Không nhả được thì khoá vẫn tự hết hạn theo TTL
+            log.warn("Không nhả được khoá {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static RedisScript<Long> releaseScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/lock/release.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+}
@@ -0,0 +1,122 @@
+package iuh.fit.se.phazelsound.common.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Render và gửi một lô email qua một lần gọi {@link JavaMailSender#send(MimeMessage...)},
+ * tức là dùng chung một kết nối SMTP cho cả lô.
+ * Metric: {@code mail.render} (mỗi email), {@code mail.send} (mỗi lô) và {@code mail.failures} theo loại email và bước lỗi.
+ */
+@Component
+public class EmailBatchSender {
+
+    private final JavaMailSender javaMailSender;
+    private final OtpMailRenderer otpMailRenderer;
+    private final Timer sendTimer;
+    private final Map<EmailType, Timer> renderTimers = new EnumMap<>(EmailType.class);
+    private final Map<EmailType, Counter> renderFailures = new EnumMap<>(EmailType.class);
+    private final Map<EmailType, Counter> sendFailures = new EnumMap<>(EmailType.class);
+
+    public EmailBatchSender(JavaMailSender javaMailSender, OtpMailRenderer otpMailRenderer,
+                            MeterRegistry meterRegistry) {
+        this.javaMailSender = javaMailSender;
+        this.otpMailRenderer = otpMailRenderer;
+        this.sendTimer = Timer.builder("mail.send")
+                .description("Thời gian gửi một lô email qua SMTP")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (EmailType type : EmailType.values()) {
+            String tag = type.name().toLowerCase(Locale.ROOT);
+            renderTimers.put(type, Timer.builder("mail.render")
+                    .description("Thời gian render và dựng MimeMessage cho một email")
+                    .tag("type", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            renderFailures.put(type, failureCounter(tag, "render", meterRegistry));
+            sendFailures.put(type, failureCounter(tag, "send", meterRegistry));
+        }
+    }
+
+    private static Counter failureCounter(String type, String stage, MeterRegistry meterRegistry) {
+        return Counter.builder("mail.failures")
+                .description("Số email render hoặc gửi thất bại")
+                .tag("type", type)
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return các email gửi thất bại kèm lỗi; map rỗng nếu cả lô gửi thành công
+     */
+    public Map<OutboxEmail, Exception> send(List<OutboxEmail> emails) {
+        Map<OutboxEmail, Exception> failures = new HashMap<>();
+        Map<MimeMessage, OutboxEmail> messages = new LinkedHashMap<>();
+        for (OutboxEmail email : emails) {
+            Timer.Sample sample = Timer.start();
+            try {
+                messages.put(render(email), email);
+            } catch (MessagingException e) {
+                renderFailures.get(email.type()).increment();
+                failures.put(email, e);
+            } finally {
+                sample.stop(renderTimers.get(email.type()));
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            javaMailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages.isEmpty()) {
+                messages.values().forEach(email -> failures.put(email, e));
+            } else {
+                failedMessages.forEach((message, error) -> {
+                    OutboxEmail email = messages.get(message);
+                    if (email != null) {
+                        failures.put(email, error);
+                    }
+                });
+            }
+        } catch (MailException e) {
+            messages.values().forEach(email -> failures.put(email, e));
+        } finally {
+            sample.stop(sendTimer);
+        }
+        // Email trong messages đều đã render được, nên lỗi của chúng là lỗi lúc gửi
+        messages.values().stream()
+                .filter(failures::containsKey)
+                .forEach(email -> sendFailures.get(email.type()).increment());
+        return failures;
+    }
+
+    // Message một part text/html, không cần MimeMessageHelper multipart cho email chỉ có HTML
+    private MimeMessage render(OutboxEmail email) throws MessagingException {
+        MimeMessage message = javaMailSender.createMimeMessage();
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(email.to(), true));
+        message.setHeader("Subject", otpMailRenderer.encodedSubject(email.type()));
+        message.setText(otpMailRenderer.render(email.type(), email.name(), email.otp()), StandardCharsets.UTF_8.name(), "html");
+        return message;
+    }
+}
@@ -0,0 +1,148 @@
+package iuh.fit.se.phazelsound.common.mail;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.DefaultStringRedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outbox email bền vững trên Redis Stream với consumer group:
+ * {@code EMAIL_OUTBOX} chứa email chờ gửi, {@code EMAIL_OUTBOX_RETRY} (zset) giữ email chờ retry theo backoff,
+ * {@code EMAIL_OUTBOX_DLQ} nhận email đã hết số lần thử.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutbox {
+
+    public static final String STREAM = "EMAIL_OUTBOX";
+    public static final String RETRY_QUEUE = "EMAIL_OUTBOX_RETRY";
+    public static final String DEAD_LETTER_STREAM = "EMAIL_OUTBOX_DLQ";
+    public static final String GROUP = "email-workers";
+
+    private static final RedisScript<Long> PROMOTE_DUE = promoteDueScript();
+
+    private final StringRedisTemplate redisTemplate;
+    private final JsonMapper jsonMapper;
+
+    @Value("${application.mail.outbox.max-length:100000}")
+    private long maxLength;
+
+    @PostConstruct
+    void createGroup() {
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(STREAM.getBytes(StandardCharsets.UTF_8), GROUP, ReadOffset.from("0"), true));
+        } catch (DataAccessException e) {
+            // BUSYGROUP: group đã tồn tại; các lỗi khác sẽ lộ ra ở lần đọc đầu tiên
+            log.debug("Bỏ qua tạo consumer group {}: {}", GROUP, e.getMessage());
+        }
+    }
+
+    public void enqueue(OutboxEmail email) {
+        redisTemplate.opsForStream().add(STREAM, email.toFields(), XAddOptions.maxlen(maxLength).approximateTrimming(true));
+    }
+
+    public List<OutboxEmail> read(String consumer, int count) {
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().read(
+                Consumer.from(GROUP, consumer),
+                StreamReadOptions.empty().count(count),
+                StreamOffset.create(STREAM, ReadOffset.lastConsumed()));
+        return toEmails(records);
+    }
+
+    /**
+     * Nhận lại các entry đã giao cho consumer khác (có thể đã chết) nhưng quá lâu chưa được ack.
+     */
+    public List<OutboxEmail> claimStale(String consumer, Duration minIdle, int count) {
+        PendingMessages pending = redisTemplate.opsForStream().pending(STREAM, GROUP, Range.unbounded(), count, minIdle);
+        if (pending == null || pending.isEmpty()) {
+            return List.of();
+        }
+        RecordId[] ids = pending.stream().map(PendingMessage::getId).toArray(RecordId[]::new);
+        return toEmails(redisTemplate.opsForStream().claim(STREAM, GROUP, consumer, minIdle, ids));
+    }
+
+    /**
+     * Ack và xoá hẳn entry khỏi stream để OTP không nằm lại trong Redis sau khi đã xử lý.
+     */
+    public void complete(List<OutboxEmail> emails) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        String[] ids = emails.stream().map(OutboxEmail::id).toArray(String[]::new);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = new DefaultStringRedisConnection(connection);
+            commands.xAck(STREAM, GROUP, ids);
+            commands.xDel(STREAM, ids);
+            return null;
+        });
+    }
+
+    public void scheduleRetry(OutboxEmail email, long dueAtMillis) {
+        Map<String, String> payload = new HashMap<>(email.toFields());
+        // Giữ payload trong zset là duy nhất kể cả khi hai email giống hệt nhau
+        payload.put("origin", String.valueOf(email.id()));
+        redisTemplate.opsForZSet().add(RETRY_QUEUE, jsonMapper.writeValueAsString(payload), dueAtMillis);
+    }
+
+    public int promoteDueRetries(int limit) {
+        Long promoted = redisTemplate.execute(PROMOTE_DUE, List.of(RETRY_QUEUE, STREAM),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(limit), String.valueOf(maxLength));
+        return promoted == null ? 0 : promoted.intValue();
+    }
+
+    /**
+     * Chuyển email sang dead-letter stream. Mã OTP bị che: entry ở đây sống lâu hơn mã và chỉ dùng để điều tra lỗi gửi.
+     */
+    public void deadLetter(OutboxEmail email, String error) {
+        Map<String, String> fields = new HashMap<>(email.redacted().toFields());
+        fields.put("error", error == null ? "unknown" : error);
+        redisTemplate.opsForStream().add(DEAD_LETTER_STREAM, fields, XAddOptions.maxlen(maxLength).approximateTrimming(true));
+    }
+
+    private static List<OutboxEmail> toEmails(List<MapRecord<String, Object, Object>> records) {
+        if (records == null || records.isEmpty()) {
+            return List.of();
+        }
+        List<OutboxEmail> emails = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            emails.add(OutboxEmail.fromFields(record.getId().getValue(), record.getValue()));
+        }
+        return emails;
+    }
+
+    private static RedisScript<Long> promoteDueScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/mail/promote_due.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+}
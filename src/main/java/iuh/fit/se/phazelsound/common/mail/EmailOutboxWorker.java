@@ -0,0 +1,99 @@
+package iuh.fit.se.phazelsound.common.mail;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Đọc outbox theo lô, gửi cả lô trên một kết nối SMTP, retry với backoff luỹ thừa
+ * và chuyển sang dead-letter stream khi hết số lần thử.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxWorker {
+
+    private final EmailOutbox emailOutbox;
+    private final EmailBatchSender emailBatchSender;
+
+    private final String consumerName = ManagementFactory.getRuntimeMXBean().getName();
+
+    @Value("${application.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${application.mail.outbox.max-batches-per-poll:20}")
+    private int maxBatchesPerPoll;
+
+    @Value("${application.mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${application.mail.outbox.retry-base-delay-ms:2000}")
+    private long retryBaseDelayMillis;
+
+    @Value("${application.mail.outbox.claim-idle-ms:60000}")
+    private long claimIdleMillis;
+
+    @Scheduled(fixedDelayString = "${application.mail.outbox.poll-interval-ms:500}")
+    public void poll() {
+        try {
+            emailOutbox.promoteDueRetries(batchSize);
+
+            int batches = 0;
+            List<OutboxEmail> batch;
+            do {
+                batch = emailOutbox.read(consumerName, batchSize);
+                process(batch);
+            } while (batch.size() == batchSize && ++batches < maxBatchesPerPoll);
+
+            process(emailOutbox.claimStale(consumerName, Duration.ofMillis(claimIdleMillis), batchSize));
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được email outbox: {}", e.getMessage());
+        }
+    }
+
+    private void process(List<OutboxEmail> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<OutboxEmail, Exception> failures = emailBatchSender.send(batch);
+        List<OutboxEmail> handled = new ArrayList<>(batch);
+        for (Map.Entry<OutboxEmail, Exception> failure : failures.entrySet()) {
+            OutboxEmail email = failure.getKey();
+            try {
+                retryOrDeadLetter(email, failure.getValue());
+            } catch (DataAccessException e) {
+                // Chưa chuyển được sang retry/DLQ: để entry pending, claimStale sẽ nhận lại đúng email này
+                log.warn("Không lên lịch lại được email {} tới {}: {}", email.type(), email.to(), e.getMessage());
+                handled.remove(email);
+            }
+        }
+        // Luôn ack email đã gửi xong để chúng không bị gửi lại qua claimStale
+        emailOutbox.complete(handled);
+
+        log.info("Đã xử lý {} email, {} lỗi", batch.size(), failures.size());
+    }
+
+    private void retryOrDeadLetter(OutboxEmail email, Exception error) {
+        OutboxEmail next = email.nextAttempt();
+        if (next.attempts() >= maxAttempts) {
+            log.error("Bỏ email {} tới {} sau {} lần thử: {}", email.type(), email.to(), next.attempts(),
+                    error.getMessage());
+            emailOutbox.deadLetter(next, error.getMessage());
+        } else {
+            long delay = retryBaseDelayMillis << (next.attempts() - 1);
+            log.warn("Gửi email {} tới {} lỗi, thử lại sau {} ms: {}", email.type(), email.to(), delay,
+                    error.getMessage());
+            emailOutbox.scheduleRetry(next, System.currentTimeMillis() + delay);
+        }
+    }
+}
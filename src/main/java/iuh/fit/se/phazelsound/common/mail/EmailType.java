@@ -0,0 +1,22 @@
+package iuh.fit.se.phazelsound.common.mail;
+
+public enum EmailType {
+    REGISTER_OTP("email/register-otp", "[Phazel Sound] Mã xác thực tài khoản"),
+    FORGOT_PASSWORD_OTP("email/forgot-password", "[Phazel Sound] Đặt lại mật khẩu");
+
+    private final String template;
+    private final String subject;
+
+    EmailType(String template, String subject) {
+        this.template = template;
+        this.subject = subject;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+}
@@ -0,0 +1,101 @@
+package iuh.fit.se.phazelsound.common.mail;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.internet.MimeUtility;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Render template OTP mà không chạy Thymeleaf cho từng email.
+ * Lúc khởi động, mỗi template trong {@code templates/email} được Thymeleaf render đúng một lần với giá trị đánh dấu,
+ * kết quả được cắt thành các đoạn HTML tĩnh xen kẽ chỗ trống cho {@code name} và {@code otp}.
+ * Mỗi lần gửi chỉ còn nối chuỗi và escape HTML hai giá trị đó.
+ */
+@Component
+@RequiredArgsConstructor
+public class OtpMailRenderer {
+
+    private static final String NAME_MARKER = "PHZNAMEMARKER7f3a";
+    private static final String OTP_MARKER = "PHZOTPMARKER7f3a";
+
+    private final TemplateEngine templateEngine;
+
+    private final Map<EmailType, CompiledTemplate> templates = new EnumMap<>(EmailType.class);
+    private final Map<EmailType, String> encodedSubjects = new EnumMap<>(EmailType.class);
+
+    @PostConstruct
+    void init() {
+        for (EmailType type : EmailType.values()) {
+            Context context = new Context();
+            context.setVariable("name", NAME_MARKER);
+            context.setVariable("otp", OTP_MARKER);
+            templates.put(type, CompiledTemplate.compile(templateEngine.process(type.getTemplate(), context)));
+            try {
+                encodedSubjects.put(type, MimeUtility.encodeText(type.getSubject(), StandardCharsets.UTF_8.name(), "B"));
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public String render(EmailType type, String name, String otp) {
+        return templates.get(type).render(HtmlUtils.htmlEscape(name, StandardCharsets.UTF_8.name()),
+                HtmlUtils.htmlEscape(otp, StandardCharsets.UTF_8.name()));
+    }
+
+    /**
+     * Subject đã encode sẵn theo RFC 2047, gán thẳng vào header không cần encode lại.
+     */
+    public String encodedSubject(EmailType type) {
+        return encodedSubjects.get(type);
+    }
+
+    private record CompiledTemplate(String[] segments, boolean[] nameSlots, int staticLength) {
+
+        static CompiledTemplate compile(String html) {
+            List<String> segments = new ArrayList<>();
+            List<Boolean> nameSlots = new ArrayList<>();
+            int staticLength = 0;
+            int position = 0;
+            while (true) {
+                int nameAt = html.indexOf(NAME_MARKER, position);
+                int otpAt = html.indexOf(OTP_MARKER, position);
+                if (nameAt < 0 && otpAt < 0) {
+                    break;
+                }
+                boolean isName = otpAt < 0 || (nameAt >= 0 && nameAt < otpAt);
+                int at = isName ? nameAt : otpAt;
+                segments.add(html.substring(position, at));
+                nameSlots.add(isName);
+                staticLength += at - position;
+                position = at + (isName ? NAME_MARKER : OTP_MARKER).length();
+            }
+            segments.add(html.substring(position));
+            staticLength += html.length() - position;
+
+            boolean[] slots = new boolean[nameSlots.size()];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = nameSlots.get(i);
+            }
+            return new CompiledTemplate(segments.toArray(new String[0]), slots, staticLength);
+        }
+
+        String render(String name, String otp) {
+            StringBuilder html = new StringBuilder(staticLength + nameSlots.length * Math.max(name.length(), otp.length()));
+            for (int i = 0; i < nameSlots.length; i++) {
+                html.append(segments[i]).append(nameSlots[i] ? name : otp);
+            }
+            return html.append(segments[segments.length - 1]).toString();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package iuh.fit.se.phazelsound.common.mail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Một email OTP nằm trong outbox. {@code id} là id của entry trong Redis Stream (null khi chưa enqueue).
+ */
+public record OutboxEmail(String id, EmailType type, String to, String name, String otp, int attempts) {
+
+    public static final String REDACTED_OTP = "******";
+
+    public static OutboxEmail of(EmailType type, String to, String name, String otp) {
+        return new OutboxEmail(null, type, to, name, otp, 0);
+    }
+
+    public static OutboxEmail fromFields(String id, Map<?, ?> fields) {
+        return new OutboxEmail(id,
+                EmailType.valueOf(String.valueOf(fields.get("type"))),
+                String.valueOf(fields.get("to")),
+                String.valueOf(fields.get("name")),
+                String.valueOf(fields.get("otp")),
+                Integer.parseInt(String.valueOf(fields.get("attempts"))));
+    }
+
+    public Map<String, String> toFields() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("type", type.name());
+        fields.put("to", to);
+        fields.put("name", name);
+        fields.put("otp", otp);
+        fields.put("attempts", String.valueOf(attempts));
+        return fields;
+    }
+
+    public OutboxEmail nextAttempt() {
+        return new OutboxEmail(id, type, to, name, otp, attempts + 1);
+    }
+
+    /**
+     * Bản sao không còn mã OTP, dùng cho những gì còn nằm lại trong Redis sau khi bỏ cuộc (dead-letter).
+     */
+    public OutboxEmail redacted() {
+        return new OutboxEmail(id, type, to, name, REDACTED_OTP, attempts);
+    }
+}
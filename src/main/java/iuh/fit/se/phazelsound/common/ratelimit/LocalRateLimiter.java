@@ -0,0 +1,64 @@
+package iuh.fit.se.phazelsound.common.ratelimit;
+
+import iuh.fit.se.phazelsound.common.annotation.RateLimit;
+import iuh.fit.se.phazelsound.common.cache.BoundedTtlCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ đếm fixed-window trong heap, chỉ dùng khi circuit Redis đang mở.
+ * Mọi thuật toán đều được xấp xỉ bằng fixed window; số lượt đã tiêu được ghi lại
+ * để đẩy bù lên Redis khi kết nối hồi phục.
+ */
+public class LocalRateLimiter {
+
+    private final BoundedTtlCache<String, AtomicLong> windows;
+    private final Map<PendingDebit, LongAdder> pendingDebits = new ConcurrentHashMap<>();
+    private final int maxPendingKeys;
+
+    public LocalRateLimiter(int maxKeys) {
+        this.windows = new BoundedTtlCache<>(maxKeys);
+        this.maxPendingKeys = maxKeys;
+    }
+
+    public RateLimitDecision tryAcquire(RateLimit.Algorithm algorithm, String key, long limit, long windowMillis) {
+        long now = System.currentTimeMillis();
+        long windowStart = now - (now % windowMillis);
+        long windowEnd = windowStart + windowMillis;
+
+        AtomicLong counter = windows.getOrCreate(key + "@" + windowStart, AtomicLong::new, windowEnd);
+        long current = counter.incrementAndGet();
+
+        PendingDebit debit = new PendingDebit(algorithm, key, limit, windowMillis);
+        LongAdder pending = pendingDebits.get(debit);
+        if (pending == null && pendingDebits.size() < maxPendingKeys) {
+            pending = pendingDebits.computeIfAbsent(debit, d -> new LongAdder());
+        }
+        if (pending != null) {
+            pending.increment();
+        }
+
+        return current > limit ? RateLimitDecision.reject(windowEnd - now) : RateLimitDecision.allow();
+    }
+
+    /**
+     * Lấy ra toàn bộ số lượt đã tiêu cục bộ từ lần drain trước.
+     */
+    public Map<PendingDebit, Long> drainPendingDebits() {
+        Map<PendingDebit, Long> drained = new HashMap<>();
+        for (PendingDebit debit : pendingDebits.keySet()) {
+            LongAdder adder = pendingDebits.remove(debit);
+            if (adder != null && adder.sum() > 0) {
+                drained.put(debit, adder.sum());
+            }
+        }
+        return drained;
+    }
+
+    public record PendingDebit(RateLimit.Algorithm algorithm, String key, long limit, long windowMillis) {
+    }
+}
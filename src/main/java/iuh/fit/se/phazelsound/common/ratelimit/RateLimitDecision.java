@@ -0,0 +1,16 @@
+package iuh.fit.se.phazelsound.common.ratelimit;
+
+public record RateLimitDecision(boolean allowed, long retryAfterMillis) {
+
+    public static RateLimitDecision allow() {
+        return new RateLimitDecision(true, 0);
+    }
+
+    public static RateLimitDecision reject(long retryAfterMillis) {
+        return new RateLimitDecision(false, retryAfterMillis);
+    }
+
+    public long retryAfterSeconds() {
+        return Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+}
@@ -0,0 +1,59 @@
+package iuh.fit.se.phazelsound.common.ratelimit;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker tối giản cho các lệnh Redis: mở sau {@code failureThreshold} lỗi liên tiếp,
+ * giữ trạng thái mở {@code openMillis}, sau đó cho đúng một request thử (half-open).
+ */
+public class RedisCircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong(0);
+    private final AtomicBoolean trialInFlight = new AtomicBoolean(false);
+
+    public RedisCircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public boolean allowRequest() {
+        long opened = openedAt.get();
+        if (opened == 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() - opened < openMillis) {
+            return false;
+        }
+        return trialInFlight.compareAndSet(false, true);
+    }
+
+    /**
+     * @return true nếu lần thành công này đóng lại circuit đang mở
+     */
+    public boolean recordSuccess() {
+        consecutiveFailures.set(0);
+        trialInFlight.set(false);
+        return openedAt.getAndSet(0) != 0;
+    }
+
+    public void recordFailure() {
+        trialInFlight.set(false);
+        if (openedAt.get() != 0) {
+            openedAt.set(System.currentTimeMillis());
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt.compareAndSet(0, System.currentTimeMillis());
+        }
+    }
+
+    public boolean isOpen() {
+        return openedAt.get() != 0;
+    }
+}
@@ -0,0 +1,83 @@
+package iuh.fit.se.phazelsound.common.ratelimit;
+
+import iuh.fit.se.phazelsound.common.annotation.RateLimit;
+import iuh.fit.se.phazelsound.common.redis.CompactKeyspace;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Mỗi quyết định rate limit là một lần EVALSHA: đếm, đặt TTL và tính thời gian chờ đều chạy trong Lua
+ * nên chỉ tốn một round trip và không có khe hở giữa INCR và EXPIRE.
+ * SHA của script được {@link DefaultRedisScript} tính sẵn, Redis chỉ nhận lại source khi trả về NOSCRIPT.
+ * Khi bật {@code application.redis.compact-layout}, bộ đếm fixed window nằm trong hash bucket (xem {@link CompactKeyspace}).
+ */
+@Component
+@RequiredArgsConstructor
+public class RedisRateLimiter {
+
+    private static final String KEY_PREFIX = "RATELIMIT:";
+    private static final String BUCKET_PREFIX = "RLB:";
+
+    private static final RedisScript<List> FIXED_WINDOW = script("scripts/ratelimit/fixed_window.lua");
+    private static final RedisScript<List> SLIDING_WINDOW = script("scripts/ratelimit/sliding_window.lua");
+    private static final RedisScript<List> TOKEN_BUCKET = script("scripts/ratelimit/token_bucket.lua");
+    private static final RedisScript<List> FIXED_WINDOW_COMPACT = script("scripts/ratelimit/fixed_window_compact.lua");
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${application.redis.compact-layout.enabled:false}")
+    private boolean compactLayout;
+
+    @Value("${application.redis.compact-layout.buckets:16384}")
+    private int compactBuckets;
+
+    public RateLimitDecision tryAcquire(RateLimit.Algorithm algorithm, String key, long limit, long windowMillis, long cost) {
+        List<?> result;
+        if (compactLayout && algorithm == RateLimit.Algorithm.FIXED_WINDOW) {
+            // Sliding window và token bucket giữ nhiều giá trị cho mỗi key nên vẫn dùng key riêng
+            String bucket = CompactKeyspace.bucketKey(BUCKET_PREFIX, key, compactBuckets);
+            result = redisTemplate.execute(FIXED_WINDOW_COMPACT, List.of(bucket), key,
+                    String.valueOf(limit), String.valueOf(windowMillis), String.valueOf(cost));
+        } else {
+            result = redisTemplate.execute(scriptFor(algorithm), List.of(redisKey(algorithm, key)),
+                    String.valueOf(limit), String.valueOf(windowMillis), String.valueOf(cost));
+        }
+
+        if (result == null || result.size() < 2) {
+            return RateLimitDecision.allow();
+        }
+        boolean allowed = ((Number) result.get(0)).longValue() == 1;
+        long retryAfterMillis = ((Number) result.get(1)).longValue();
+        return allowed ? RateLimitDecision.allow() : RateLimitDecision.reject(retryAfterMillis);
+    }
+
+    public static String redisKey(RateLimit.Algorithm algorithm, String key) {
+        return switch (algorithm) {
+            case FIXED_WINDOW -> KEY_PREFIX + key;
+            case SLIDING_WINDOW -> KEY_PREFIX + "SW:" + key;
+            case TOKEN_BUCKET -> KEY_PREFIX + "TB:" + key;
+        };
+    }
+
+    private static RedisScript<List> scriptFor(RateLimit.Algorithm algorithm) {
+        return switch (algorithm) {
+            case FIXED_WINDOW -> FIXED_WINDOW;
+            case SLIDING_WINDOW -> SLIDING_WINDOW;
+            case TOKEN_BUCKET -> TOKEN_BUCKET;
+        };
+    }
+
+    private static RedisScript<List> script(String location) {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(List.class);
+        return script;
+    }
+}
@@ -0,0 +1,111 @@
+package iuh.fit.se.phazelsound.common.ratelimit;
+
+import iuh.fit.se.phazelsound.common.annotation.RateLimit;
+import iuh.fit.se.phazelsound.common.cache.BoundedTtlCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lớp đứng trước {@link RedisRateLimiter}:
+ * <ul>
+ *     <li>near-cache "bị chặn tới lúc nào" để từ chối key đang bị chặn mà không cần gọi Redis;</li>
+ *     <li>khi Redis lỗi liên tiếp thì mở circuit và chuyển sang bộ đếm cục bộ;</li>
+ *     <li>khi Redis hồi phục thì đẩy bù số lượt đã tiêu cục bộ lên Redis.</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ResilientRateLimiter {
+
+    private final RedisRateLimiter redisRateLimiter;
+
+    @Value("${application.ratelimit.near-cache-size:100000}")
+    private int nearCacheSize;
+
+    @Value("${application.ratelimit.local-max-keys:100000}")
+    private int localMaxKeys;
+
+    @Value("${application.ratelimit.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${application.ratelimit.circuit.open-millis:10000}")
+    private long openMillis;
+
+    private BoundedTtlCache<String, Long> blockedUntil;
+    private LocalRateLimiter localRateLimiter;
+    private RedisCircuitBreaker circuitBreaker;
+    private ExecutorService reconcileExecutor;
+
+    @PostConstruct
+    void init() {
+        this.blockedUntil = new BoundedTtlCache<>(nearCacheSize);
+        this.localRateLimiter = new LocalRateLimiter(localMaxKeys);
+        this.circuitBreaker = new RedisCircuitBreaker(failureThreshold, openMillis);
+        this.reconcileExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ratelimit-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reconcileExecutor.shutdown();
+    }
+
+    public RateLimitDecision tryAcquire(RateLimit.Algorithm algorithm, String key, long limit, long windowMillis) {
+        String blockKey = algorithm.name() + ":" + key;
+        long now = System.currentTimeMillis();
+
+        Long until = blockedUntil.get(blockKey);
+        if (until != null) {
+            return RateLimitDecision.reject(until - now);
+        }
+
+        RateLimitDecision decision = null;
+        if (circuitBreaker.allowRequest()) {
+            try {
+                decision = redisRateLimiter.tryAcquire(algorithm, key, limit, windowMillis, 1);
+                if (circuitBreaker.recordSuccess()) {
+                    log.info("Redis đã hồi phục, đồng bộ lại bộ đếm rate limit cục bộ");
+                    reconcileExecutor.execute(this::reconcile);
+                }
+            } catch (DataAccessException e) {
+                circuitBreaker.recordFailure();
+                log.warn("Redis lỗi khi kiểm tra rate limit, dùng bộ đếm cục bộ: {}", e.getMessage());
+            }
+        }
+        if (decision == null) {
+            decision = localRateLimiter.tryAcquire(algorithm, key, limit, windowMillis);
+        }
+
+        if (!decision.allowed()) {
+            blockedUntil.put(blockKey, now + decision.retryAfterMillis(), now + decision.retryAfterMillis());
+        }
+        return decision;
+    }
+
+    private void reconcile() {
+        Map<LocalRateLimiter.PendingDebit, Long> debits = localRateLimiter.drainPendingDebits();
+        for (Map.Entry<LocalRateLimiter.PendingDebit, Long> entry : debits.entrySet()) {
+            LocalRateLimiter.PendingDebit debit = entry.getKey();
+            try {
+                redisRateLimiter.tryAcquire(debit.algorithm(), debit.key(), debit.limit(), debit.windowMillis(), entry.getValue());
+            } catch (DataAccessException e) {
+                circuitBreaker.recordFailure();
+                log.warn("Không đồng bộ được rate limit lên Redis: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+}
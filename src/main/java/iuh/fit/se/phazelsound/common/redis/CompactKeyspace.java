@@ -0,0 +1,32 @@
+package iuh.fit.se.phazelsound.common.redis;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout gọn cho các entry nhỏ và rất nhiều (OTP, bộ đếm rate limit): thay vì mỗi entry một key top-level có TTL,
+ * gom entry vào một số cố định hash "bucket", mỗi entry là một field có TTL riêng (HPEXPIRE, Redis 7.4+).
+ * Hash ít field được Redis lưu dạng listpack nên không tốn dict entry, robj và entry trong expires dict cho từng entry.
+ * Nên chọn số bucket sao cho mỗi bucket giữ dưới {@code hash-max-listpack-entries} (mặc định 128) field.
+ */
+public final class CompactKeyspace {
+
+    private static final int FNV_OFFSET = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private CompactKeyspace() {
+    }
+
+    public static String bucketKey(String prefix, String identity, int buckets) {
+        return prefix + bucket(identity, buckets);
+    }
+
+    // FNV-1a 32 bit: ổn định giữa các node và các lần deploy, khác với String.hashCode không được đảm bảo điều đó
+    static int bucket(String identity, int buckets) {
+        int hash = FNV_OFFSET;
+        for (byte b : identity.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return Math.floorMod(hash, buckets);
+    }
+}
@@ -0,0 +1,35 @@
+package iuh.fit.se.phazelsound.common.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+/**
+ * Đo tốc độ BCrypt trên máy hiện tại và chọn cost gần nhất với thời gian hash mục tiêu.
+ * Mỗi lần tăng cost thêm 1 thì thời gian hash tăng gấp đôi.
+ */
+public final class BCryptCalibrator {
+
+    private static final int PROBE_STRENGTH = 8;
+    private static final int SAMPLES = 5;
+
+    private BCryptCalibrator() {
+    }
+
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(PROBE_STRENGTH);
+        probe.encode("calibration-warmup");
+
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration-sample-" + i);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double probeMillis = Math.max(samples[SAMPLES / 2] / 1_000_000.0, 0.01);
+
+        int strength = PROBE_STRENGTH + (int) Math.round(Math.log(targetMillis / probeMillis) / Math.log(2));
+        return Math.max(minStrength, Math.min(maxStrength, strength));
+    }
+}
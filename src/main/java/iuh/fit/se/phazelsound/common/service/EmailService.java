@@ -1,72 +1,50 @@
 package iuh.fit.se.phazelsound.common.service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import lombok.RequiredArgsConstructor;
+import iuh.fit.se.phazelsound.common.mail.EmailOutbox;
+import iuh.fit.se.phazelsound.common.mail.EmailType;
+import iuh.fit.se.phazelsound.common.mail.OutboxEmail;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
-import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 
+/**
+ * Chỉ ghi email vào outbox trên Redis; việc render và gửi do {@code EmailOutboxWorker} đảm nhận theo lô.
+ * Thời gian ghi outbox (phần nằm trên đường request) đo bằng {@code mail.enqueue}.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
-    private final JavaMailSender javaMailSender;
-    private final TemplateEngine templateEngine;
-
-    @Async
-    public void sendRegisterOtp(String toEmail, String name, String otp) {
-        try {
-            log.info("Bắt đầu gửi OTP tới: {}", toEmail);
-
-            MimeMessage message = javaMailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, StandardCharsets.UTF_8.name());
-
-            Context context = new Context();
-            context.setVariable("name", name);
-            context.setVariable("otp", otp);
-
-            String htmlContent = templateEngine.process("email/register-otp", context);
-
-            helper.setTo(toEmail);
-            helper.setSubject("[Phazel Sound] Mã xác thực tài khoản");
-            helper.setText(htmlContent, true);
-
-            javaMailSender.send(message);
-
-            log.info("Gửi mail thành công cho {}", toEmail);
-
-        } catch (MessagingException e) {
-            log.error("Lỗi sấp mặt khi gửi mail: {}", e.getMessage());
+    private final EmailOutbox emailOutbox;
+    private final Map<EmailType, Timer> enqueueTimers = new EnumMap<>(EmailType.class);
+
+    public EmailService(EmailOutbox emailOutbox, MeterRegistry meterRegistry) {
+        this.emailOutbox = emailOutbox;
+        for (EmailType type : EmailType.values()) {
+            enqueueTimers.put(type, Timer.builder("mail.enqueue")
+                    .description("Thời gian ghi một email vào outbox")
+                    .tag("type", type.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
         }
     }
-    @Async
-    public void sendForgotPasswordOtp(String toEmail, String name, String otp) {
-        try {
-            log.info("Gửi OTP quên mật khẩu tới: {}", toEmail);
-            MimeMessage message = javaMailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, StandardCharsets.UTF_8.name());
 
-            Context context = new Context();
-            context.setVariable("name", name);
-            context.setVariable("otp", otp);
-
-            String htmlContent = templateEngine.process("email/forgot-password", context);
+    public void sendRegisterOtp(String toEmail, String name, String otp) {
+        enqueue(OutboxEmail.of(EmailType.REGISTER_OTP, toEmail, name, otp));
+        log.info("Đã đưa OTP đăng ký vào hàng đợi gửi tới: {}", toEmail);
+    }
 
-            helper.setTo(toEmail);
-            helper.setSubject("[Phazel Sound] Đặt lại mật khẩu");
-            helper.setText(htmlContent, true);
+    public void sendForgotPasswordOtp(String toEmail, String name, String otp) {
+        enqueue(OutboxEmail.of(EmailType.FORGOT_PASSWORD_OTP, toEmail, name, otp));
+        log.info("Đã đưa OTP quên mật khẩu vào hàng đợi gửi tới: {}", toEmail);
+    }
 
-            javaMailSender.send(message);
-        } catch (MessagingException e) {
-            log.error("Lỗi gửi mail reset pass: {}", e.getMessage());
-        }
+    private void enqueue(OutboxEmail email) {
+        enqueueTimers.get(email.type()).record(() -> emailOutbox.enqueue(email));
     }
 }
@@ -1,7 +1,14 @@
 package iuh.fit.se.phazelsound.config;
 
-import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import iuh.fit.se.phazelsound.common.security.BCryptCalibrator;
+import iuh.fit.se.phazelsound.common.security.BoundedPasswordEncoder;
+import iuh.fit.se.phazelsound.common.security.PasswordEncoders;
+import iuh.fit.se.phazelsound.modules.user.service.UserLookupService;
+import iuh.fit.se.phazelsound.modules.user.service.UserPasswordService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -10,32 +17,65 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 @RequiredArgsConstructor
+@Slf4j
 public class ApplicationConfig {
 
-    private final UserRepository userRepository;
+    private final UserLookupService userLookupService;
+    private final UserPasswordService userPasswordService;
+
+    @Value("${application.security.password.encoding-id:bcrypt}")
+    private String passwordEncodingId;
+
+    @Value("${application.security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${application.security.password.calibrate:false}")
+    private boolean calibrateBcrypt;
+
+    @Value("${application.security.password.target-hash-ms:250}")
+    private long targetHashMillis;
+
+    @Value("${application.security.password.hash-threads:0}")
+    private int hashThreads;
+
+    @Value("${application.security.password.hash-queue-capacity:64}")
+    private int hashQueueCapacity;
+
+    @Value("${application.security.password.hash-wait-timeout-ms:5000}")
+    private long hashWaitTimeoutMillis;
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmailOrPhone(username, username)
+        return username -> userLookupService.findByEmailOrPhone(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService());
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        authProvider.setUserDetailsPasswordService(userPasswordService);
         return authProvider;
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // BCrypt chạy trên pool riêng giới hạn theo số core, không chạy trực tiếp trên thread của Tomcat
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int strength = bcryptStrength;
+        if (calibrateBcrypt) {
+            strength = BCryptCalibrator.calibrate(targetHashMillis, bcryptStrength, 16);
+            log.info("BCrypt cost sau khi đo máy: {} (mục tiêu {} ms)", strength, targetHashMillis);
+        }
+
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(PasswordEncoders.delegating(passwordEncodingId, strength), threads,
+                hashQueueCapacity, hashWaitTimeoutMillis, meterRegistry);
     }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
         return config.getAuthenticationManager();
@@ -0,0 +1,78 @@
+package iuh.fit.se.phazelsound.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import iuh.fit.se.phazelsound.common.datasource.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Primary nhận mọi ghi; transaction read-only chia đều cho các replica trong {@code application.datasource.replica-urls}.
+ * Không khai báo replica thì mọi truy vấn đi primary như trước.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Value("${application.datasource.replica-urls:}")
+    private String replicaUrls;
+
+    @Value("${application.datasource.replica-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${application.datasource.replica-max-lag-ms:10000}")
+    private long replicaMaxLagMillis;
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties, Environment environment,
+                                                             MeterRegistry meterRegistry) {
+        HikariDataSource primary = pool(properties, environment, meterRegistry, "primary", properties.determineUrl());
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls.split(",")) {
+            if (url.isBlank()) {
+                continue;
+            }
+            String name = "replica-" + replicas.size();
+            HikariDataSource replica = pool(properties, environment, meterRegistry, name, url.trim());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            replicas.put(name, replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, replicaMaxLagMillis);
+    }
+
+    /**
+     * Lazy proxy giữ chỗ connection tới câu lệnh đầu tiên, lúc đó cờ read-only của transaction đã có
+     * để {@link ReplicaRoutingDataSource} chọn đúng đích; transaction chỉ chạm cache thì không mượn connection nào.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    // Replica dùng chung user/password và các thiết lập spring.datasource.hikari.* với primary
+    private static HikariDataSource pool(DataSourceProperties properties, Environment environment,
+                                         MeterRegistry meterRegistry, String name, String url) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(name);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+}
@@ -0,0 +1,90 @@
+package iuh.fit.se.phazelsound.config;
+
+import iuh.fit.se.phazelsound.modules.auth.security.TokenPrincipal;
+import iuh.fit.se.phazelsound.modules.auth.security.TokenRevocationService;
+import iuh.fit.se.phazelsound.modules.auth.security.UserStatusRevalidator;
+import iuh.fit.se.phazelsound.modules.auth.service.JwtService;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@RequiredArgsConstructor
+@Slf4j
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtService jwtService;
+    private final UserDetailsService userDetailsService;
+    private final UserStatusRevalidator statusRevalidator;
+    private final TokenRevocationService tokenRevocationService;
+
+    // true: dựng principal từ claims, không chạm DB; false: load User qua UserDetailsService
+    private final boolean claimsPrincipal;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)
+                || SecurityContextHolder.getContext().getAuthentication() != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String token = authHeader.substring(BEARER_PREFIX.length());
+        try {
+            Claims claims = jwtService.parseToken(token);
+            if (!jwtService.isAccessToken(claims) || tokenRevocationService.isRevoked(claims)) {
+                // Chỉ access token được làm bearer (refresh token chỉ dùng ở /api/auth/refresh); token đã thu hồi thì bỏ qua
+                filterChain.doFilter(request, response);
+                return;
+            }
+            TokenPrincipal principal = claimsPrincipal ? jwtService.toPrincipal(claims) : null;
+            UsernamePasswordAuthenticationToken authentication = principal != null
+                    ? authenticateFromClaims(principal, claims)
+                    : authenticateFromDatabase(claims);
+
+            if (authentication != null) {
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        } catch (JwtException | IllegalArgumentException | UsernameNotFoundException e) {
+            log.debug("Bỏ qua bearer token không hợp lệ: {}", e.getMessage());
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private UsernamePasswordAuthenticationToken authenticateFromClaims(TokenPrincipal principal, Claims claims) {
+        UserStatus status = statusRevalidator.currentStatus(principal.id(), principal.status(), claims.getIssuedAt());
+        if (status != UserStatus.ACTIVE) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    private UsernamePasswordAuthenticationToken authenticateFromDatabase(Claims claims) {
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        if (!userDetails.isEnabled() || !userDetails.isAccountNonLocked()) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+}
@@ -1,43 +1,76 @@
 package iuh.fit.se.phazelsound.config;
 
 import iuh.fit.se.phazelsound.common.annotation.RateLimit;
+import iuh.fit.se.phazelsound.common.ratelimit.RateLimitDecision;
+import iuh.fit.se.phazelsound.common.ratelimit.ResilientRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
-import java.util.concurrent.TimeUnit;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rate limit theo IP cho các method có {@link RateLimit}. Metric {@code ratelimit.decision} và {@code ratelimit.rejections}
+ * chỉ gắn tag {@link RateLimit#key()} (hằng số trong annotation) và thuật toán, không gắn IP.
+ */
 @Aspect
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class RateLimitAspect {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final ResilientRateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    // Meter dựng một lần cho mỗi cặp (key, thuật toán), không đăng ký lại trên mỗi request
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    private record Meters(Timer decision, Counter rejections) {
+    }
 
     @Around("@annotation(rateLimit)")
     public Object handleRateLimit(ProceedingJoinPoint joinPoint, RateLimit rateLimit) throws Throwable {
         HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
         String ipAddress = request.getRemoteAddr();
 
-        String key = "RATELIMIT:" + rateLimit.key() + ":" + ipAddress;
+        String key = rateLimit.key() + ":" + ipAddress;
+        long windowMillis = rateLimit.unit().toMillis(rateLimit.period());
 
-        Long currentCount = redisTemplate.opsForValue().increment(key);
+        Meters limitMeters = metersFor(rateLimit);
+        Timer.Sample sample = Timer.start();
+        RateLimitDecision decision = rateLimiter.tryAcquire(rateLimit.algorithm(), key, rateLimit.count(), windowMillis);
+        sample.stop(limitMeters.decision());
 
-        if (currentCount != null && currentCount == 1) {
-            redisTemplate.expire(key, rateLimit.period(), rateLimit.unit());
-        }
-
-        if (currentCount != null && currentCount > rateLimit.count()) {
+        if (!decision.allowed()) {
+            limitMeters.rejections().increment();
             log.warn("IP {} bị chặn vì spam API: {}", ipAddress, rateLimit.key());
-            throw new RuntimeException("Bạn thao tác quá nhanh! Vui lòng thử lại sau " + redisTemplate.getExpire(key) + " giây.");
+            throw new RuntimeException("Bạn thao tác quá nhanh! Vui lòng thử lại sau " + decision.retryAfterSeconds() + " giây.");
         }
         return joinPoint.proceed();
     }
-}
\ No newline at end of file
+
+    private Meters metersFor(RateLimit rateLimit) {
+        return meters.computeIfAbsent(rateLimit.key() + ":" + rateLimit.algorithm().name(), ignored -> new Meters(
+                Timer.builder("ratelimit.decision")
+                        .description("Thời gian ra quyết định rate limit")
+                        .tag("key", rateLimit.key())
+                        .tag("algorithm", rateLimit.algorithm().name())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder("ratelimit.rejections")
+                        .description("Số request bị từ chối vì vượt rate limit")
+                        .tag("key", rateLimit.key())
+                        .tag("algorithm", rateLimit.algorithm().name())
+                        .register(meterRegistry)));
+    }
+}
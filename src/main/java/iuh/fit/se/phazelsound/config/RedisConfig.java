@@ -1,25 +1,73 @@
 package iuh.fit.se.phazelsound.config;
 
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.metrics.MicrometerCommandLatencyRecorder;
+import io.lettuce.core.metrics.MicrometerOptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.data.redis.autoconfigure.ClientResourcesBuilderCustomizer;
+import org.springframework.boot.data.redis.autoconfigure.DataRedisProperties;
+import org.springframework.boot.data.redis.autoconfigure.LettuceClientOptionsBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
+import java.time.Duration;
+
+/**
+ * Mọi key của ứng dụng (OTP, rate limit, token, outbox) đều lưu chuỗi hoặc số dạng chuỗi,
+ * nên chỉ dùng {@link StringRedisTemplate}; pool Lettuce cấu hình qua {@code spring.data.redis.lettuce.pool.*}.
+ */
 @Configuration
 public class RedisConfig {
-    @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
-        RedisTemplate<String, Object> template = new RedisTemplate<>();
-        template.setConnectionFactory(connectionFactory);
 
-        template.setKeySerializer(new StringRedisSerializer());
+    @Value("${application.redis.latency-histogram:true}")
+    private boolean latencyHistogram;
+
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
+        return new StringRedisTemplate(connectionFactory);
+    }
 
-        template.setValueSerializer(new StringRedisSerializer());
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 
-        template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(new StringRedisSerializer());
+    /**
+     * Redis mất kết nối thì từ chối lệnh ngay thay vì xếp hàng chờ reconnect: rate limiter và revocation
+     * đã có đường fallback riêng, còn request thì không nên treo tới hết timeout.
+     */
+    @Bean
+    public LettuceClientOptionsBuilderCustomizer lettuceClientOptionsCustomizer(DataRedisProperties properties) {
+        return builder -> {
+            SocketOptions.Builder socket = SocketOptions.builder().keepAlive(true).tcpNoDelay(true);
+            if (properties.getConnectTimeout() != null) {
+                socket.connectTimeout(properties.getConnectTimeout());
+            }
+            builder.socketOptions(socket.build())
+                    .timeoutOptions(TimeoutOptions.enabled())
+                    .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                    .autoReconnect(true);
+        };
+    }
 
-        return template;
+    // Histogram độ trễ theo từng loại lệnh phía client (lettuce.command.completion), không tách theo địa chỉ local
+    @Bean
+    public ClientResourcesBuilderCustomizer lettuceLatencyRecorderCustomizer(MeterRegistry meterRegistry) {
+        MicrometerOptions options = MicrometerOptions.builder()
+                .histogram(latencyHistogram)
+                .localDistinction(false)
+                .minLatency(Duration.ofNanos(100_000))
+                .maxLatency(Duration.ofSeconds(1))
+                .targetPercentiles(new double[] {0.5, 0.95, 0.99})
+                .build();
+        return builder -> builder.commandLatencyRecorder(new MicrometerCommandLatencyRecorder(meterRegistry, options));
     }
-}
\ No newline at end of file
+}
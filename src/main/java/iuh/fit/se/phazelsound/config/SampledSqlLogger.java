@@ -0,0 +1,36 @@
+package iuh.fit.se.phazelsound.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Thay cho {@code show-sql}: chỉ log một phần câu SQL, ở mức DEBUG, qua logger thường (không ghi thẳng stdout).
+ * Khi DEBUG tắt, mỗi câu chỉ tốn một lần kiểm tra log level.
+ */
+@Component
+@Slf4j
+public class SampledSqlLogger implements StatementInspector, HibernatePropertiesCustomizer {
+
+    @Value("${application.jpa.sql-log-sample-rate:0.01}")
+    private double sampleRate;
+
+    @Override
+    public String inspect(String sql) {
+        if (sampleRate > 0 && log.isDebugEnabled()
+                && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            log.debug("SQL: {}", sql);
+        }
+        return sql;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put("hibernate.session_factory.statement_inspector", this);
+    }
+}
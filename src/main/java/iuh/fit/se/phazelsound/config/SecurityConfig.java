@@ -1,6 +1,10 @@
 package iuh.fit.se.phazelsound.config;
 
+import iuh.fit.se.phazelsound.modules.auth.security.TokenRevocationService;
+import iuh.fit.se.phazelsound.modules.auth.security.UserStatusRevalidator;
+import iuh.fit.se.phazelsound.modules.auth.service.JwtService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -8,8 +12,11 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
 @EnableWebSecurity
@@ -17,16 +24,29 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     private final PasswordEncoder passwordEncoder;
+    private final JwtService jwtService;
+    private final UserDetailsService userDetailsService;
+    private final UserStatusRevalidator userStatusRevalidator;
+    private final TokenRevocationService tokenRevocationService;
+
+    @Value("${application.security.jwt.claims-principal:true}")
+    private boolean claimsPrincipal;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
 
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/api/auth/**", "/.well-known/jwks.json").permitAll()
+                        // Actuator chỉ mở trên management port nội bộ (management.server.port)
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
-                );
+                )
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService, userDetailsService, userStatusRevalidator,
+                                tokenRevocationService, claimsPrincipal),
+                        UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
@@ -2,12 +2,14 @@ package iuh.fit.se.phazelsound.modules.auth.controller;
 
 import iuh.fit.se.phazelsound.common.annotation.RateLimit;
 import iuh.fit.se.phazelsound.modules.auth.dto.request.LoginUserRequest;
+import iuh.fit.se.phazelsound.modules.auth.dto.request.RefreshTokenRequest;
 import iuh.fit.se.phazelsound.modules.auth.dto.request.RegisterUserRequest;
 import iuh.fit.se.phazelsound.modules.auth.dto.request.ResetPasswordRequest;
 import iuh.fit.se.phazelsound.modules.auth.dto.response.AuthResponse;
 import iuh.fit.se.phazelsound.modules.auth.service.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -33,6 +35,26 @@ public class AuthController {
         return ResponseEntity.ok(authService.login(request));
     }
 
+    // POST /api/auth/refresh (Body JSON: refreshToken) - trả về cặp token mới, token cũ hết hiệu lực
+    @RateLimit(key = "refresh", count = 30, period = 60)
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody @Valid RefreshTokenRequest request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    // POST /api/auth/logout (Body JSON: refreshToken)
+    @PostMapping("/logout")
+    public ResponseEntity<String> logout(@RequestBody @Valid RefreshTokenRequest request,
+                                         @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return ResponseEntity.ok(authService.logout(request, authorization));
+    }
+
+    // POST /api/auth/logout-all (Body JSON: refreshToken) - thu hồi mọi phiên của user
+    @PostMapping("/logout-all")
+    public ResponseEntity<String> logoutAll(@RequestBody @Valid RefreshTokenRequest request) {
+        return ResponseEntity.ok(authService.logoutAll(request));
+    }
+
     // POST /api/auth/resend-register-otp?email=...
     @RateLimit(key = "resend-otp", count = 3, period = 300)
     @PostMapping("/resend-register-otp")
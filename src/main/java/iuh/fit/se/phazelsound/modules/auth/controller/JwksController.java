@@ -0,0 +1,36 @@
+package iuh.fit.se.phazelsound.modules.auth.controller;
+
+import iuh.fit.se.phazelsound.modules.auth.security.SigningKeyRing;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+    private final SigningKeyRing keyRing;
+
+    @Value("${application.security.jwt.jwks-max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    // GET /.well-known/jwks.json - public key để service khác tự verify access token
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks(WebRequest request) {
+        SigningKeyRing.Jwks jwks = keyRing.jwks();
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+        if (request.checkNotModified(jwks.etag())) {
+            return ResponseEntity.status(304).cacheControl(cacheControl).eTag(jwks.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(jwks.etag())
+                .body(jwks.json());
+    }
+}
@@ -0,0 +1,277 @@
+package iuh.fit.se.phazelsound.modules.auth.security;
+
+import iuh.fit.se.phazelsound.common.cache.BoundedTtlCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Bộ khoá RS256 dùng ký JWT. Mỗi node tự sinh cặp khoá, private key không rời khỏi process;
+ * chỉ public key được công bố vào hash Redis {@code JWT_PUBLIC_KEYS} (kid → hạn dùng|X.509 base64),
+ * để mọi node và các service khác (qua {@code /.well-known/jwks.json}) verify được token của nhau.
+ * <p>
+ * Luôn có khoá "kế tiếp" được công bố trước một chu kỳ xoay vòng, nên client cache JWKS
+ * đã thấy khoá mới trước khi nó được dùng để ký. Khoá cũ còn được công bố tới khi token cuối cùng nó ký hết hạn.
+ * Node vừa khởi động cũng vậy: chờ khoá đầu tiên được công bố đủ {@code key-activation-delay-ms} rồi mới nhận request.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SigningKeyRing {
+
+    public static final String PUBLIC_KEYS = "JWT_PUBLIC_KEYS";
+    public static final String ALGORITHM = "RS256";
+
+    private final StringRedisTemplate redisTemplate;
+    private final JsonMapper jsonMapper;
+
+    @Value("${application.security.jwt.rotation-interval-ms:86400000}")
+    private long rotationIntervalMillis;
+
+    @Value("${application.security.jwt.rsa-key-size:2048}")
+    private int keySize;
+
+    @Value("${application.security.jwt.refresh-expiration}")
+    private long maxTokenLifetimeMillis;
+
+    @Value("${application.security.jwt.unknown-kid-reload-ms:5000}")
+    private long unknownKidReloadMillis;
+
+    // Mặc định bằng chu kỳ reload: mọi node khác đã đọc lại JWT_PUBLIC_KEYS ít nhất một lần
+    @Value("${application.security.jwt.key-activation-delay-ms:${application.security.jwt.key-reload-interval-ms:60000}}")
+    private long activationDelayMillis;
+
+    private volatile SigningKey current;
+    private volatile SigningKey next;
+    // Mọi khoá node này từng sinh và chưa hết hạn, kể cả khoá đã thôi ký
+    private final List<SigningKey> ownKeys = new CopyOnWriteArrayList<>();
+    private volatile Map<String, VerificationKey> verificationKeys = Map.of();
+    private volatile Jwks jwks;
+
+    // Kid không có trong Redis ở lần reload gần nhất: không reload lại vì kid đó tới khi entry hết hạn
+    private final BoundedTtlCache<String, Boolean> unknownKids = new BoundedTtlCache<>(1024);
+    private final Object reloadLock = new Object();
+    private volatile long reloadsStarted;
+
+    public record SigningKey(String kid, PrivateKey privateKey, RSAPublicKey publicKey, long expiresAt) {
+    }
+
+    public record Jwks(String json, String etag) {
+    }
+
+    private record VerificationKey(RSAPublicKey publicKey, long expiresAt) {
+    }
+
+    @PostConstruct
+    void init() {
+        long now = System.currentTimeMillis();
+        this.current = generate(now + rotationIntervalMillis + maxTokenLifetimeMillis);
+        this.next = generate(now + 2 * rotationIntervalMillis + maxTokenLifetimeMillis);
+        publish(current);
+        publish(next);
+        reload();
+        awaitActivation();
+    }
+
+    private void awaitActivation() {
+        if (activationDelayMillis <= 0) {
+            return;
+        }
+        log.info("Chờ {} ms để public key JWT {} tới được các node khác trước khi ký", activationDelayMillis, current.kid());
+        try {
+            Thread.sleep(activationDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the JWT signing key to be published", e);
+        }
+    }
+
+    public SigningKey signingKey() {
+        return current;
+    }
+
+    /**
+     * Public key theo kid. Kid lạ thì đọc lại Redis: giới hạn theo từng kid (kid vừa không tìm thấy thì không đọc lại
+     * trong {@code unknown-kid-reload-ms}) và các request cùng chờ một lần đọc đang chạy, để kid rác không làm ngập Redis
+     * mà cũng không chặn khoá mới của node khác.
+     */
+    public RSAPublicKey verificationKey(String kid) {
+        VerificationKey key = verificationKeys.get(kid);
+        if (key == null && unknownKids.get(kid) == null) {
+            key = reloadFor(kid);
+        }
+        return key == null || key.expiresAt() <= System.currentTimeMillis() ? null : key.publicKey();
+    }
+
+    private VerificationKey reloadFor(String kid) {
+        long seen = reloadsStarted;
+        synchronized (reloadLock) {
+            // Có lần reload bắt đầu sau khi request này tới thì kết quả của nó đã đủ mới, không đọc Redis thêm
+            if (reloadsStarted == seen) {
+                reload();
+            }
+        }
+        VerificationKey key = verificationKeys.get(kid);
+        if (key == null) {
+            unknownKids.put(kid, Boolean.TRUE, System.currentTimeMillis() + unknownKidReloadMillis);
+        }
+        return key;
+    }
+
+    public Jwks jwks() {
+        return jwks;
+    }
+
+    @Scheduled(initialDelayString = "${application.security.jwt.rotation-interval-ms:86400000}",
+            fixedDelayString = "${application.security.jwt.rotation-interval-ms:86400000}")
+    public void rotate() {
+        SigningKey promoted = next;
+        this.next = generate(System.currentTimeMillis() + 2 * rotationIntervalMillis + maxTokenLifetimeMillis);
+        this.current = promoted;
+        publish(next);
+        reload();
+        log.info("Đã xoay vòng khoá ký JWT, kid hiện tại {}", promoted.kid());
+    }
+
+    @Scheduled(initialDelayString = "${application.security.jwt.key-reload-interval-ms:60000}",
+            fixedDelayString = "${application.security.jwt.key-reload-interval-ms:60000}")
+    public void reload() {
+        synchronized (reloadLock) {
+            reloadsStarted++;
+            doReload();
+        }
+    }
+
+    private void doReload() {
+        long now = System.currentTimeMillis();
+        Map<String, VerificationKey> keys = new LinkedHashMap<>();
+        try {
+            Map<Object, Object> published = redisTemplate.opsForHash().entries(PUBLIC_KEYS);
+            List<Object> expired = new ArrayList<>();
+            for (Map.Entry<Object, Object> entry : published.entrySet()) {
+                VerificationKey key = decode(entry.getValue().toString());
+                if (key == null || key.expiresAt() <= now) {
+                    expired.add(entry.getKey());
+                } else {
+                    keys.put(entry.getKey().toString(), key);
+                }
+            }
+            if (!expired.isEmpty()) {
+                redisTemplate.opsForHash().delete(PUBLIC_KEYS, expired.toArray());
+            }
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được public key JWT từ Redis, chỉ dùng khoá của node này: {}", e.getMessage());
+            keys.putAll(verificationKeys);
+        }
+        // Khoá của chính node luôn verify được, kể cả khi Redis chưa ghi kịp hoặc đã mất dữ liệu
+        ownKeys.removeIf(own -> own.expiresAt() <= now);
+        for (SigningKey own : ownKeys) {
+            keys.put(own.kid(), new VerificationKey(own.publicKey(), own.expiresAt()));
+        }
+        this.verificationKeys = Map.copyOf(keys);
+        this.jwks = buildJwks(keys);
+    }
+
+    private void publish(SigningKey key) {
+        try {
+            redisTemplate.opsForHash().put(PUBLIC_KEYS, key.kid(),
+                    key.expiresAt() + "|" + Base64.getEncoder().encodeToString(key.publicKey().getEncoded()));
+        } catch (DataAccessException e) {
+            log.warn("Không công bố được public key JWT {}: {}", key.kid(), e.getMessage());
+        }
+    }
+
+    private SigningKey generate(long expiresAt) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(keySize);
+            KeyPair pair = generator.generateKeyPair();
+            SigningKey key = new SigningKey(UUID.randomUUID().toString(), pair.getPrivate(),
+                    (RSAPublicKey) pair.getPublic(), expiresAt);
+            ownKeys.add(key);
+            return key;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot generate RSA signing key", e);
+        }
+    }
+
+    private static VerificationKey decode(String value) {
+        int separator = value.indexOf('|');
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            long expiresAt = Long.parseLong(value.substring(0, separator));
+            byte[] der = Base64.getDecoder().decode(value.substring(separator + 1));
+            RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA")
+                    .generatePublic(new X509EncodedKeySpec(der));
+            return new VerificationKey(publicKey, expiresAt);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.warn("Bỏ qua public key JWT không hợp lệ trong Redis: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Jwks buildJwks(Map<String, VerificationKey> keys) {
+        List<Map<String, String>> jwkList = new ArrayList<>(keys.size());
+        keys.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    Map<String, String> jwk = new LinkedHashMap<>();
+                    jwk.put("kty", "RSA");
+                    jwk.put("use", "sig");
+                    jwk.put("alg", ALGORITHM);
+                    jwk.put("kid", entry.getKey());
+                    jwk.put("n", base64Url(entry.getValue().publicKey().getModulus()));
+                    jwk.put("e", base64Url(entry.getValue().publicKey().getPublicExponent()));
+                    jwkList.add(jwk);
+                });
+        String json = jsonMapper.writeValueAsString(Map.of("keys", jwkList));
+        return new Jwks(json, "\"" + sha256Hex(json).substring(0, 32) + "\"");
+    }
+
+    // JWK dùng base64url của số nguyên không dấu, bỏ byte 0 đầu mà BigInteger thêm vào để giữ dấu
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] unsigned = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, unsigned, 0, unsigned.length);
+            bytes = unsigned;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package iuh.fit.se.phazelsound.modules.auth.security;
+
+import iuh.fit.se.phazelsound.modules.auth.entity.UserRole;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Principal dựng thẳng từ claims của access token đã verify, không load entity {@code User}.
+ */
+public record TokenPrincipal(UUID id, String email, UserRole role, UserStatus status) implements Principal {
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,223 @@
+package iuh.fit.se.phazelsound.modules.auth.security;
+
+import iuh.fit.se.phazelsound.common.cache.BloomFilter;
+import iuh.fit.se.phazelsound.modules.auth.service.JwtService;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Thu hồi access token trước hạn. Có hai loại entry:
+ * {@code REVOKED_JTI:<jti>} cho một token (logout) và {@code REVOKED_USER:<uid>} = mốc thời gian (ms),
+ * mọi token của user có iat không sau giây chứa mốc đó đều hết hiệu lực (đổi mật khẩu, logout mọi thiết bị).
+ * Entry sống đúng bằng phần đời còn lại của token.
+ * <p>
+ * Mỗi node giữ một Bloom filter dựng từ stream {@code TOKEN_REVOCATIONS}, đọc tiếp theo id đã đọc.
+ * Token không bị thu hồi (trường hợp phổ biến) được xác nhận hoàn toàn trong bộ nhớ;
+ * chỉ khi Bloom filter báo có mới hỏi Redis để loại dương tính giả.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationService {
+
+    public static final String STREAM = "TOKEN_REVOCATIONS";
+
+    private static final String JTI_PREFIX = "REVOKED_JTI:";
+    private static final String USER_PREFIX = "REVOKED_USER:";
+
+    private static final RedisScript<Long> REVOKE_SCRIPT = revokeScript();
+
+    private final StringRedisTemplate redisTemplate;
+    private final JwtService jwtService;
+
+    @Value("${application.security.revocation.expected-entries:100000}")
+    private long expectedEntries;
+
+    @Value("${application.security.revocation.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${application.security.revocation.sync-batch-size:1000}")
+    private int syncBatchSize;
+
+    @Value("${application.security.revocation.rebuild-interval-ms:600000}")
+    private long rebuildIntervalMillis;
+
+    @Value("${application.security.revocation.stream-max-length:200000}")
+    private long streamMaxLength;
+
+    private volatile BloomFilter filter;
+    private volatile long filterEntries;
+    private volatile long filterBuiltAt;
+    private volatile String lastId = "0-0";
+
+    @PostConstruct
+    void init() {
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        this.filterBuiltAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Thu hồi một access token (theo jti) tới khi nó tự hết hạn.
+     */
+    public void revokeToken(Claims claims) {
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return;
+        }
+        revoke(JTI_PREFIX + claims.getId(), jtiKey(claims.getId()), "1", claims.getExpiration().getTime());
+    }
+
+    /**
+     * Thu hồi mọi access token của user phát hành tới thời điểm hiện tại.
+     */
+    public void revokeUser(UUID userId) {
+        long now = System.currentTimeMillis();
+        revoke(USER_PREFIX + userId, userKey(userId.toString()), String.valueOf(now),
+                now + jwtService.getAccessExpiration());
+    }
+
+    public boolean isRevoked(Claims claims) {
+        BloomFilter current = filter;
+        String jti = claims.getId();
+        String userId = claims.get(JwtService.CLAIM_USER_ID, String.class);
+        boolean jtiHit = jti != null && current.mightContain(jtiKey(jti));
+        boolean userHit = userId != null && current.mightContain(userKey(userId));
+        if (!jtiHit && !userHit) {
+            return false;
+        }
+
+        // Một lệnh MGET cho mọi key Bloom filter báo có, không tốn hai round-trip khi trùng cả hai
+        List<String> keys = new ArrayList<>(2);
+        if (jtiHit) {
+            keys.add(JTI_PREFIX + jti);
+        }
+        if (userHit) {
+            keys.add(USER_PREFIX + userId);
+        }
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return true;
+            }
+            if (jtiHit && values.get(0) != null) {
+                return true;
+            }
+            if (userHit) {
+                String revokedAt = values.get(keys.size() - 1);
+                return revokedAt != null && issuedBefore(claims.getIssuedAt(), Long.parseLong(revokedAt));
+            }
+            return false;
+        } catch (DataAccessException e) {
+            // Bloom filter đã báo có: an toàn hơn là coi như đã thu hồi
+            log.warn("Không kiểm tra được denylist token, từ chối token: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Đọc tiếp stream thu hồi vào Bloom filter. Filter đầy hoặc quá cũ thì dựng lại từ đầu stream,
+     * bỏ qua entry đã hết hạn, rồi thay thế filter cũ.
+     */
+    @Scheduled(fixedDelayString = "${application.security.revocation.sync-interval-ms:1000}")
+    public void sync() {
+        try {
+            long now = System.currentTimeMillis();
+            if (filterEntries > expectedEntries || now - filterBuiltAt > rebuildIntervalMillis) {
+                BloomFilter fresh = new BloomFilter(expectedEntries, falsePositiveRate);
+                SyncResult result = readInto(fresh, "0-0", now);
+                this.filter = fresh;
+                this.filterEntries = result.entries();
+                this.filterBuiltAt = now;
+                this.lastId = result.lastId();
+                log.debug("Dựng lại Bloom filter thu hồi token: {} entry", result.entries());
+                return;
+            }
+            SyncResult result = readInto(filter, lastId, now);
+            this.filterEntries += result.entries();
+            this.lastId = result.lastId();
+        } catch (DataAccessException e) {
+            log.warn("Không đồng bộ được stream thu hồi token: {}", e.getMessage());
+        }
+    }
+
+    private void revoke(String redisKey, String bloomKey, String value, long expiresAtMillis) {
+        long ttl = expiresAtMillis - System.currentTimeMillis();
+        if (ttl <= 0) {
+            return;
+        }
+        redisTemplate.execute(REVOKE_SCRIPT, List.of(redisKey, STREAM),
+                value, String.valueOf(ttl), bloomKey, String.valueOf(expiresAtMillis), String.valueOf(streamMaxLength));
+        // Node hiện tại thấy ngay, các node khác thấy sau một chu kỳ sync
+        filter.put(bloomKey);
+    }
+
+    private SyncResult readInto(BloomFilter target, String fromId, long now) {
+        String cursor = fromId;
+        long entries = 0;
+        while (true) {
+            List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().read(
+                    StreamReadOptions.empty().count(syncBatchSize),
+                    StreamOffset.create(STREAM, ReadOffset.from(cursor)));
+            if (records == null || records.isEmpty()) {
+                return new SyncResult(cursor, entries);
+            }
+            for (MapRecord<String, Object, Object> record : records) {
+                Object key = record.getValue().get("key");
+                Object exp = record.getValue().get("exp");
+                if (key != null && exp != null && Long.parseLong(exp.toString()) > now) {
+                    target.put(key.toString());
+                    entries++;
+                }
+                cursor = record.getId().getValue();
+            }
+            if (records.size() < syncBatchSize) {
+                return new SyncResult(cursor, entries);
+            }
+        }
+    }
+
+    /**
+     * iat chỉ chính xác tới giây còn mốc thu hồi lưu theo ms: token phát hành cùng giây với mốc
+     * (kể cả token bị đánh cắp ngay trước khi logout) vẫn bị thu hồi, đổi lại lần login ngay sau đó
+     * trong cùng giây cũng phải login lại.
+     */
+    static boolean issuedBefore(Date issuedAt, long revokedAtMillis) {
+        return issuedAt != null && issuedAt.getTime() / 1000 <= revokedAtMillis / 1000;
+    }
+
+    private static String jtiKey(String jti) {
+        return "jti:" + jti;
+    }
+
+    private static String userKey(String userId) {
+        return "uid:" + userId;
+    }
+
+    private record SyncResult(String lastId, long entries) {
+    }
+
+    private static RedisScript<Long> revokeScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/token/revoke_access.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+}
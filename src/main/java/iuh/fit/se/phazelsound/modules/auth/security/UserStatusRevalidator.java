@@ -0,0 +1,63 @@
+package iuh.fit.se.phazelsound.modules.auth.security;
+
+import iuh.fit.se.phazelsound.common.cache.BoundedTtlCache;
+import iuh.fit.se.phazelsound.modules.user.cache.ReadYourWritesTracker;
+import iuh.fit.se.phazelsound.modules.user.cache.UserInvalidatedEvent;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Status trong token chỉ được tin trong một khoảng {@code status-revalidate-seconds} kể từ lúc phát hành.
+ * Token cũ hơn sẽ được đối chiếu status thật trong DB, kết quả cache lại đúng bằng khoảng đó,
+ * nên thay đổi như BANNED có hiệu lực chậm nhất sau một cửa sổ.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserStatusRevalidator {
+
+    private final UserRepository userRepository;
+    private final ReadYourWritesTracker readYourWrites;
+
+    @Value("${application.security.jwt.status-revalidate-seconds:60}")
+    private long revalidateSeconds;
+
+    @Value("${application.security.jwt.status-cache-size:50000}")
+    private int statusCacheSize;
+
+    private BoundedTtlCache<UUID, UserStatus> statusCache;
+
+    @PostConstruct
+    void init() {
+        this.statusCache = new BoundedTtlCache<>(statusCacheSize);
+    }
+
+    public UserStatus currentStatus(UUID userId, UserStatus tokenStatus, Date issuedAt) {
+        long windowMillis = revalidateSeconds * 1000;
+        long now = System.currentTimeMillis();
+        if (issuedAt != null && now - issuedAt.getTime() < windowMillis) {
+            return tokenStatus;
+        }
+
+        UserStatus cached = statusCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        UserStatus status = readYourWrites.read(userId.toString(), () -> userRepository.findStatusById(userId))
+                .orElse(UserStatus.BANNED);
+        statusCache.put(userId, status, now + windowMillis);
+        return status;
+    }
+
+    @EventListener
+    public void onUserInvalidated(UserInvalidatedEvent event) {
+        statusCache.remove(event.userId());
+    }
+}
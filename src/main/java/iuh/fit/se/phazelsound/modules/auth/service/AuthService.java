@@ -1,6 +1,7 @@
 package iuh.fit.se.phazelsound.modules.auth.service;
 
 import iuh.fit.se.phazelsound.modules.auth.dto.request.LoginUserRequest;
+import iuh.fit.se.phazelsound.modules.auth.dto.request.RefreshTokenRequest;
 import iuh.fit.se.phazelsound.modules.auth.dto.request.RegisterUserRequest;
 import iuh.fit.se.phazelsound.modules.auth.dto.request.ResetPasswordRequest;
 import iuh.fit.se.phazelsound.modules.auth.dto.response.AuthResponse;
@@ -9,6 +10,9 @@ public interface AuthService {
     String register(RegisterUserRequest request);
     String verifyRegisterOtp(String email, String otp);
     AuthResponse login(LoginUserRequest request);
+    AuthResponse refresh(RefreshTokenRequest request);
+    String logout(RefreshTokenRequest request, String authorization);
+    String logoutAll(RefreshTokenRequest request);
 
     String resendRegisterOtp(String email);
     String sendForgotPasswordOtp(String email);
@@ -1,10 +1,25 @@
 package iuh.fit.se.phazelsound.modules.auth.service;
 
+import iuh.fit.se.phazelsound.common.cache.BoundedTtlCache;
+import iuh.fit.se.phazelsound.modules.auth.entity.UserRole;
+import iuh.fit.se.phazelsound.modules.auth.security.SigningKeyRing;
+import iuh.fit.se.phazelsound.modules.auth.security.TokenPrincipal;
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -13,70 +28,215 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
+/**
+ * Ký JWT bằng RS256 với khoá hiện tại của {@link SigningKeyRing} (header {@code kid}),
+ * verify theo kid nên service khác chỉ cần JWKS là tự verify được.
+ * Token HS256 cũ (ký bằng {@code secret-key}) vẫn được chấp nhận khi bật {@code accept-hs256}.
+ */
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
-    @Value("${application.security.jwt.secret-key}")
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_STATUS = "status";
+    public static final String CLAIM_TOKEN_TYPE = "typ";
+    public static final String CLAIM_FAMILY = "fid";
+
+    public static final String TOKEN_TYPE_ACCESS = "access";
+    public static final String TOKEN_TYPE_REFRESH = "refresh";
+
+    private final SigningKeyRing keyRing;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${application.security.jwt.secret-key:}")
     private String secretKey;
 
+    // RS256 (mặc định) hoặc HS256 để quay lại ký bằng secret chung
+    @Value("${application.security.jwt.signing-algorithm:RS256}")
+    private String signingAlgorithm;
+
+    @Value("${application.security.jwt.accept-hs256:true}")
+    private boolean acceptHs256;
+
     @Value("${application.security.jwt.access-expiration}")
     private long jwtExpiration;
 
     @Value("${application.security.jwt.refresh-expiration}")
     private long refreshExpiration;
 
+    @Value("${application.security.jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    // Key và parser chỉ dựng một lần lúc khởi động, dùng chung cho mọi request
+    private Key hmacKey;
+    private boolean signWithHmac;
+    private JwtParser jwtParser;
+
+    // Token đã verify chữ ký gần đây, sống tới đúng thời điểm exp của token
+    private BoundedTtlCache<String, Claims> verifiedTokens;
+
+    private Timer accessSignTimer;
+    private Timer refreshSignTimer;
+
+    @PostConstruct
+    void init() {
+        this.signWithHmac = SignatureAlgorithm.HS256.getValue().equalsIgnoreCase(signingAlgorithm);
+        if (secretKey != null && !secretKey.isBlank() && (signWithHmac || acceptHs256)) {
+            this.hmacKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        }
+        if (signWithHmac && hmacKey == null) {
+            throw new IllegalStateException("application.security.jwt.secret-key is required for HS256 signing");
+        }
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveKey(header);
+                    }
+                })
+                .build();
+        this.verifiedTokens = new BoundedTtlCache<>(verifiedCacheSize);
+        this.accessSignTimer = signTimer(TOKEN_TYPE_ACCESS);
+        this.refreshSignTimer = signTimer(TOKEN_TYPE_REFRESH);
+    }
+
+    private Timer signTimer(String type) {
+        return Timer.builder("auth.token.sign")
+                .description("Thời gian dựng và ký một JWT")
+                .tag("type", type)
+                .tag("algorithm", signWithHmac ? SignatureAlgorithm.HS256.getValue() : SignatureAlgorithm.RS256.getValue())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
-    public String generateAccessToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, jwtExpiration);
+    public String generateAccessToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId().toString());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        claims.put(CLAIM_STATUS, user.getStatus().name());
+        claims.put(CLAIM_TOKEN_TYPE, TOKEN_TYPE_ACCESS);
+        // jti để có thể thu hồi riêng từng access token
+        claims.put(Claims.ID, UUID.randomUUID().toString());
+        return accessSignTimer.record(() -> buildToken(claims, user.getUsername(), jwtExpiration));
     }
 
-    public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, refreshExpiration);
+    /**
+     * Refresh token chỉ mang định danh user, family và jti; trạng thái của family nằm ở Redis.
+     */
+    public String generateRefreshToken(String subject, UUID userId, String familyId, String tokenId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, userId.toString());
+        claims.put(CLAIM_FAMILY, familyId);
+        claims.put(CLAIM_TOKEN_TYPE, TOKEN_TYPE_REFRESH);
+        claims.put(Claims.ID, tokenId);
+        return refreshSignTimer.record(() -> buildToken(claims, subject, refreshExpiration));
     }
 
-    private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
-        return Jwts.builder()
+    public long getAccessExpiration() {
+        return jwtExpiration;
+    }
+
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
+
+    private String buildToken(Map<String, Object> extraClaims, String subject, long expiration) {
+        long now = System.currentTimeMillis();
+        JwtBuilder builder = Jwts.builder()
                 .setClaims(extraClaims)
-                .setSubject(userDetails.getUsername()) // Lưu email vào token
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration)) // Hết hạn theo config
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setSubject(subject) // Lưu email vào token
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration)); // Hết hạn theo config
+        if (signWithHmac) {
+            return builder.signWith(hmacKey, SignatureAlgorithm.HS256).compact();
+        }
+        SigningKeyRing.SigningKey signingKey = keyRing.signingKey();
+        return builder
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.kid())
+                .signWith(signingKey.privateKey(), SignatureAlgorithm.RS256)
                 .compact();
     }
 
+    // Chọn key theo alg + kid trong header; HMAC chỉ dành cho token HS256 cũ, không bao giờ dùng public key làm secret
+    private Key resolveKey(JwsHeader<?> header) {
+        SignatureAlgorithm algorithm = SignatureAlgorithm.forName(header.getAlgorithm());
+        if (algorithm.isHmac()) {
+            if (hmacKey == null) {
+                throw new UnsupportedJwtException("HMAC-signed tokens are not accepted");
+            }
+            return hmacKey;
+        }
+        String kid = header.getKeyId();
+        Key key = kid == null ? null : keyRing.verificationKey(kid);
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown signing key: " + kid);
+        }
+        return key;
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        final Claims claims = parseToken(token);
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
+        final Claims claims = parseToken(token);
+        return claimsResolver.apply(claims);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Verify chữ ký và hạn của token đúng một lần, kết quả được cache tới khi token hết hạn.
+     * Ném {@link io.jsonwebtoken.JwtException} nếu token sai hoặc đã hết hạn.
+     */
+    public Claims parseToken(String token) {
+        Claims cached = verifiedTokens.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        verifiedTokens.put(token, claims, claims.getExpiration().getTime());
+        return claims;
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public boolean isRefreshToken(Claims claims) {
+        return TOKEN_TYPE_REFRESH.equals(claims.get(CLAIM_TOKEN_TYPE, String.class));
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Chỉ access token mới được dùng làm bearer. Token HS256 cũ không có {@code typ} (cả access lẫn refresh)
+     * nên chỉ nhận token cũ có thời hạn không dài hơn access token; refresh token cũ bị từ chối.
+     */
+    public boolean isAccessToken(Claims claims) {
+        String type = claims.get(CLAIM_TOKEN_TYPE, String.class);
+        if (type != null) {
+            return TOKEN_TYPE_ACCESS.equals(type);
+        }
+        Date issuedAt = claims.getIssuedAt();
+        Date expiration = claims.getExpiration();
+        // iat/exp chỉ chính xác tới giây
+        return issuedAt != null && expiration != null
+                && expiration.getTime() - issuedAt.getTime() <= jwtExpiration + 1000;
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Dựng principal từ claims của access token. Trả về null với token cũ chưa mang đủ claims.
+     */
+    public TokenPrincipal toPrincipal(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        String status = claims.get(CLAIM_STATUS, String.class);
+        if (userId == null || role == null || status == null) {
+            return null;
+        }
+        return new TokenPrincipal(UUID.fromString(userId), claims.getSubject(),
+                UserRole.valueOf(role), UserStatus.valueOf(status));
     }
-}
\ No newline at end of file
+}
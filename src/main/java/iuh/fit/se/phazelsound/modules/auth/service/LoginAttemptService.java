@@ -0,0 +1,133 @@
+package iuh.fit.se.phazelsound.modules.auth.service;
+
+import iuh.fit.se.phazelsound.common.exception.TooManyRequestsException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Theo dõi số lần login sai theo identifier và theo IP, khoá tạm thời với thời gian tăng theo cấp số nhân.
+ * Được gọi trước khi tra user và verify password, nên một lần thử khi đang bị khoá chỉ tốn một lệnh Redis.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LoginAttemptService {
+
+    private static final String FAIL_PREFIX = "LOGIN_FAIL:";
+    private static final String LOCK_PREFIX = "LOGIN_LOCK:";
+
+    private static final RedisScript<List> CHECK_SCRIPT = script("scripts/auth/login_check.lua", List.class);
+    private static final RedisScript<Long> FAILURE_SCRIPT = script("scripts/auth/login_failure.lua", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${application.security.login.identifier-threshold:5}")
+    private int identifierThreshold;
+
+    @Value("${application.security.login.ip-threshold:20}")
+    private int ipThreshold;
+
+    @Value("${application.security.login.failure-window-seconds:900}")
+    private long failureWindowSeconds;
+
+    @Value("${application.security.login.base-lock-seconds:30}")
+    private long baseLockSeconds;
+
+    @Value("${application.security.login.max-lock-seconds:3600}")
+    private long maxLockSeconds;
+
+    /**
+     * Ném {@link TooManyRequestsException} nếu identifier hoặc IP đang bị khoá.
+     *
+     * @return số lần sai trước đó của identifier, truyền lại cho {@link #recordSuccess}
+     */
+    public long checkAllowed(String identifier) {
+        List<?> result;
+        try {
+            result = redisTemplate.execute(CHECK_SCRIPT,
+                    List.of(lockKey("ID", identifier), lockKey("IP", clientIp()), failKey("ID", identifier)));
+        } catch (DataAccessException e) {
+            log.warn("Không kiểm tra được trạng thái khoá login: {}", e.getMessage());
+            return 0;
+        }
+        if (result == null || result.size() < 2) {
+            return 0;
+        }
+
+        long lockMillis = ((Number) result.get(0)).longValue();
+        if (lockMillis > 0) {
+            throw new TooManyRequestsException("Đăng nhập sai quá nhiều lần. Vui lòng thử lại sau "
+                    + Math.max(1, (lockMillis + 999) / 1000) + " giây.", Math.max(1, (lockMillis + 999) / 1000));
+        }
+        return ((Number) result.get(1)).longValue();
+    }
+
+    public void recordFailure(String identifier) {
+        String ip = clientIp();
+        try {
+            Long lockMillis = redisTemplate.execute(FAILURE_SCRIPT,
+                    List.of(failKey("ID", identifier), lockKey("ID", identifier), failKey("IP", ip), lockKey("IP", ip)),
+                    String.valueOf(identifierThreshold), String.valueOf(ipThreshold),
+                    String.valueOf(failureWindowSeconds * 1000), String.valueOf(baseLockSeconds * 1000),
+                    String.valueOf(maxLockSeconds * 1000));
+            if (lockMillis != null && lockMillis > 0) {
+                log.warn("Tạm khoá login {} ms sau nhiều lần sai (ip {})", lockMillis, ip);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Không ghi nhận được lần login sai: {}", e.getMessage());
+        }
+    }
+
+    public void recordSuccess(String identifier, long previousFailures) {
+        if (previousFailures == 0) {
+            return;
+        }
+        try {
+            redisTemplate.delete(failKey("ID", identifier));
+        } catch (DataAccessException e) {
+            log.warn("Không reset được bộ đếm login sai: {}", e.getMessage());
+        }
+    }
+
+    private static String failKey(String type, String value) {
+        return FAIL_PREFIX + type + ":" + normalize(value);
+    }
+
+    private static String lockKey(String type, String value) {
+        return LOCK_PREFIX + type + ":" + normalize(value);
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String clientIp() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            return request.getRemoteAddr();
+        }
+        return "unknown";
+    }
+
+    private static <T> RedisScript<T> script(String location, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(resultType);
+        return script;
+    }
+}
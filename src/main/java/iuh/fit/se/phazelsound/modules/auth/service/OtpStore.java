@@ -0,0 +1,233 @@
+package iuh.fit.se.phazelsound.modules.auth.service;
+
+import iuh.fit.se.phazelsound.common.redis.CompactKeyspace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.DefaultStringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Lưu OTP trong Redis dưới dạng hash {@code code} + {@code attempts} có TTL.
+ * Phát mã và kiểm tra mã đều là một script Lua, nên verify chỉ tốn một round trip.
+ * Nhập sai quá {@code max-attempts} lần thì mã bị xoá, phải xin mã mới.
+ * Khi bật {@code application.redis.compact-layout}, OTP nằm trong hash bucket (xem {@link CompactKeyspace}).
+ * Metric: {@code auth.otp} (thời gian issue/verify theo purpose) và {@code auth.otp.verify.failures} (theo kết quả).
+ */
+@Service
+@Slf4j
+public class OtpStore {
+
+    private static final RedisScript<Long> ISSUE_SCRIPT = script("scripts/otp/issue.lua", Long.class);
+    private static final RedisScript<List> VERIFY_SCRIPT = script("scripts/otp/verify.lua", List.class);
+    private static final RedisScript<Long> ISSUE_COMPACT_SCRIPT = script("scripts/otp/issue_compact.lua", Long.class);
+    private static final RedisScript<List> VERIFY_COMPACT_SCRIPT = script("scripts/otp/verify_compact.lua", List.class);
+
+    private static final SecureRandom RANDOM = secureRandom();
+
+    private final StringRedisTemplate redisTemplate;
+    private final Map<Purpose, Timer> issueTimers = new EnumMap<>(Purpose.class);
+    private final Map<Purpose, Timer> verifyTimers = new EnumMap<>(Purpose.class);
+    private final Map<Purpose, Map<Result, Counter>> verifyFailures = new EnumMap<>(Purpose.class);
+
+    @Value("${application.security.otp.expiration-minutes}")
+    private long otpExpirationMinutes;
+
+    @Value("${application.security.otp.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${application.redis.compact-layout.enabled:false}")
+    private boolean compactLayout;
+
+    @Value("${application.redis.compact-layout.buckets:16384}")
+    private int compactBuckets;
+
+    public OtpStore(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        for (Purpose purpose : Purpose.values()) {
+            String tag = purpose.name().toLowerCase(Locale.ROOT);
+            issueTimers.put(purpose, otpTimer("issue", tag, meterRegistry));
+            verifyTimers.put(purpose, otpTimer("verify", tag, meterRegistry));
+            Map<Result, Counter> failures = new EnumMap<>(Result.class);
+            for (Result result : Result.values()) {
+                if (result != Result.VALID) {
+                    failures.put(result, Counter.builder("auth.otp.verify.failures")
+                            .description("Số lần nhập OTP không thành công")
+                            .tag("purpose", tag)
+                            .tag("result", result.name().toLowerCase(Locale.ROOT))
+                            .register(meterRegistry));
+                }
+            }
+            verifyFailures.put(purpose, failures);
+        }
+    }
+
+    private static Timer otpTimer(String operation, String purpose, MeterRegistry meterRegistry) {
+        return Timer.builder("auth.otp")
+                .description("Thời gian một thao tác OTP trên Redis")
+                .tag("operation", operation)
+                .tag("purpose", purpose)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Purpose {
+        REGISTER("OTP_REGISTER:", "OTPB:R:"),
+        FORGOT_PASSWORD("OTP_FORGOT:", "OTPB:F:");
+
+        private final String keyPrefix;
+        private final String bucketPrefix;
+
+        public String key(String email) {
+            return keyPrefix + email;
+        }
+    }
+
+    public enum Result {
+        VALID, INVALID, EXPIRED, EXHAUSTED
+    }
+
+    /**
+     * Sinh mã mới, ghi đè mã cũ (nếu có) và reset bộ đếm nhập sai.
+     */
+    public String issue(Purpose purpose, String email) {
+        return issueTimers.get(purpose).record(() -> doIssue(purpose, email));
+    }
+
+    private String doIssue(Purpose purpose, String email) {
+        String otp = generate();
+        String ttlMillis = String.valueOf(otpExpirationMinutes * 60_000);
+        if (compactLayout) {
+            redisTemplate.execute(ISSUE_COMPACT_SCRIPT, List.of(bucketKey(purpose, email)), email, otp, ttlMillis);
+        } else {
+            redisTemplate.execute(ISSUE_SCRIPT, List.of(purpose.key(email)), otp, ttlMillis);
+        }
+        return otp;
+    }
+
+    /**
+     * Kiểm tra và tiêu thụ mã trong cùng một lệnh: đúng thì mã bị xoá ngay, sai thì tăng bộ đếm.
+     */
+    public Result verifyAndConsume(Purpose purpose, String email, String otp) {
+        Result result = verifyTimers.get(purpose).record(() -> doVerify(purpose, email, otp));
+        if (result != Result.VALID) {
+            verifyFailures.get(purpose).get(result).increment();
+        }
+        return result;
+    }
+
+    private Result doVerify(Purpose purpose, String email, String otp) {
+        if (otp == null) {
+            return Result.INVALID;
+        }
+        List<?> result = compactLayout
+                ? redisTemplate.execute(VERIFY_COMPACT_SCRIPT, List.of(bucketKey(purpose, email)),
+                        email, otp, String.valueOf(maxAttempts))
+                : redisTemplate.execute(VERIFY_SCRIPT, List.of(purpose.key(email)), otp, String.valueOf(maxAttempts));
+        long status = result == null || result.isEmpty() ? -1 : ((Number) result.get(0)).longValue();
+        if (status == -2) {
+            log.warn("Xoá OTP {} sau {} lần nhập sai", purpose, maxAttempts);
+        }
+        return switch ((int) status) {
+            case 1 -> Result.VALID;
+            case 0 -> Result.INVALID;
+            case -2 -> Result.EXHAUSTED;
+            default -> Result.EXPIRED;
+        };
+    }
+
+    /**
+     * Xoá OTP đang chờ của nhiều email, ví dụ khi tài khoản bị dọn; một pipeline cho cả lô.
+     */
+    public void discard(Purpose purpose, Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        if (!compactLayout) {
+            redisTemplate.delete(emails.stream().map(purpose::key).toList());
+            return;
+        }
+        Map<String, List<String>> byBucket = emails.stream()
+                .collect(Collectors.groupingBy(email -> bucketKey(purpose, email)));
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = new DefaultStringRedisConnection(connection);
+            byBucket.forEach((bucket, fields) -> commands.hDel(bucket, fields.toArray(String[]::new)));
+            return null;
+        });
+    }
+
+    /**
+     * Các email trong danh sách còn OTP chưa hết hạn; một pipeline EXISTS (hoặc HEXISTS với layout gọn) cho cả lô.
+     */
+    public Set<String> pending(Purpose purpose, List<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        List<Object> exists = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = new DefaultStringRedisConnection(connection);
+            for (String email : emails) {
+                if (compactLayout) {
+                    commands.hExists(bucketKey(purpose, email), email);
+                } else {
+                    commands.exists(purpose.key(email));
+                }
+            }
+            return null;
+        });
+        Set<String> pending = new HashSet<>();
+        for (int i = 0; i < emails.size(); i++) {
+            Object value = exists.get(i);
+            if (Boolean.TRUE.equals(value) || value instanceof Number count && count.longValue() > 0) {
+                pending.add(emails.get(i));
+            }
+        }
+        return pending;
+    }
+
+    private String bucketKey(Purpose purpose, String email) {
+        return CompactKeyspace.bucketKey(purpose.getBucketPrefix(), email, compactBuckets);
+    }
+
+    public static String generate() {
+        return String.format("%06d", RANDOM.nextInt(1_000_000));
+    }
+
+    // NativePRNGNonBlocking đọc /dev/urandom nên không bị chặn khi thiếu entropy; nền tảng không có thì dùng mặc định
+    private static SecureRandom secureRandom() {
+        try {
+            return SecureRandom.getInstance("NativePRNGNonBlocking");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    private static <T> RedisScript<T> script(String location, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(resultType);
+        return script;
+    }
+}
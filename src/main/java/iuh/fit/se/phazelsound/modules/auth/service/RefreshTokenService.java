@@ -0,0 +1,152 @@
+package iuh.fit.se.phazelsound.modules.auth.service;
+
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Refresh token xoay vòng theo family. Mỗi lần login mở một family mới;
+ * Redis giữ {@code REFRESH_FAMILY:<fid>} = jti hợp lệ duy nhất của family đó.
+ * Mỗi lần refresh đổi sang jti mới; dùng lại một jti cũ nghĩa là token đã bị lộ, cả family bị thu hồi ngay.
+ * {@code REFRESH_USER:<uid>} là tập family của user, dùng cho logout mọi thiết bị.
+ * Logout và logout mọi thiết bị cũng chỉ nhận jti hiện tại của family; jti cũ được xử lý như bị dùng lại.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    private static final String FAMILY_PREFIX = "REFRESH_FAMILY:";
+    private static final String USER_PREFIX = "REFRESH_USER:";
+
+    private static final RedisScript<Long> ISSUE_SCRIPT = script("scripts/token/refresh_issue.lua");
+    private static final RedisScript<Long> ROTATE_SCRIPT = script("scripts/token/refresh_rotate.lua");
+    private static final RedisScript<Long> REVOKE_SCRIPT = script("scripts/token/refresh_revoke.lua");
+    private static final RedisScript<Long> REVOKE_ALL_SCRIPT = script("scripts/token/refresh_revoke_all.lua");
+    private static final RedisScript<Long> LOGOUT_ALL_SCRIPT = script("scripts/token/refresh_logout_all.lua");
+
+    private final StringRedisTemplate redisTemplate;
+    private final JwtService jwtService;
+
+    public record Rotation(UUID userId, String subject, String refreshToken) {
+    }
+
+    /**
+     * Mở family mới cho một phiên đăng nhập.
+     */
+    public String issue(User user) {
+        String familyId = UUID.randomUUID().toString();
+        String tokenId = UUID.randomUUID().toString();
+        redisTemplate.execute(ISSUE_SCRIPT, List.of(familyKey(familyId), userKey(user.getId())),
+                tokenId, String.valueOf(jwtService.getRefreshExpiration()), familyId);
+        return jwtService.generateRefreshToken(user.getUsername(), user.getId(), familyId, tokenId);
+    }
+
+    /**
+     * Đổi refresh token lấy token mới cùng family. Token cũ hết hiệu lực ngay sau lệnh này.
+     */
+    public Rotation rotate(String refreshToken) {
+        Claims claims = parse(refreshToken);
+        UUID userId = UUID.fromString(claims.get(JwtService.CLAIM_USER_ID, String.class));
+        String familyId = claims.get(JwtService.CLAIM_FAMILY, String.class);
+        String newTokenId = UUID.randomUUID().toString();
+
+        Long result = redisTemplate.execute(ROTATE_SCRIPT, List.of(familyKey(familyId), userKey(userId)),
+                claims.getId(), newTokenId, String.valueOf(jwtService.getRefreshExpiration()), familyId);
+        if (result == null || result < 0) {
+            throw new RuntimeException("Refresh token has been revoked or expired.");
+        }
+        if (result == 0) {
+            log.warn("Refresh token bị dùng lại, thu hồi family {} của user {}", familyId, userId);
+            throw new RuntimeException("Refresh token has been revoked or expired.");
+        }
+        return new Rotation(userId, claims.getSubject(),
+                jwtService.generateRefreshToken(claims.getSubject(), userId, familyId, newTokenId));
+    }
+
+    /**
+     * Logout một phiên: thu hồi family của token. Token cũ đã xoay vòng vẫn làm family bị thu hồi nhưng bị từ chối.
+     */
+    public void revoke(String refreshToken) {
+        Claims claims = parse(refreshToken);
+        String familyId = claims.get(JwtService.CLAIM_FAMILY, String.class);
+        UUID userId = UUID.fromString(claims.get(JwtService.CLAIM_USER_ID, String.class));
+        Long result = redisTemplate.execute(REVOKE_SCRIPT, List.of(familyKey(familyId), userKey(userId)),
+                claims.getId(), familyId);
+        if (result != null && result == 0) {
+            log.warn("Refresh token cũ bị dùng để logout, thu hồi family {} của user {}", familyId, userId);
+            throw new RuntimeException("Refresh token has been revoked or expired.");
+        }
+    }
+
+    /**
+     * Logout mọi thiết bị bằng refresh token hiện tại của một family. Trả về user của token.
+     * Token cũ đã xoay vòng chỉ làm family của nó bị thu hồi, không logout được các thiết bị khác.
+     */
+    public UUID revokeAll(String refreshToken) {
+        Claims claims = parse(refreshToken);
+        String familyId = claims.get(JwtService.CLAIM_FAMILY, String.class);
+        UUID userId = UUID.fromString(claims.get(JwtService.CLAIM_USER_ID, String.class));
+        Long result = redisTemplate.execute(LOGOUT_ALL_SCRIPT, List.of(familyKey(familyId), userKey(userId)),
+                claims.getId(), familyId, FAMILY_PREFIX);
+        if (result == null || result < 0) {
+            throw new RuntimeException("Refresh token has been revoked or expired.");
+        }
+        if (result == 0) {
+            log.warn("Refresh token cũ bị dùng để logout mọi thiết bị, thu hồi family {} của user {}", familyId, userId);
+            throw new RuntimeException("Refresh token has been revoked or expired.");
+        }
+        return userId;
+    }
+
+    /**
+     * Logout mọi thiết bị: thu hồi toàn bộ family của user.
+     */
+    public long revokeAll(UUID userId) {
+        Long revoked = redisTemplate.execute(REVOKE_ALL_SCRIPT, List.of(userKey(userId)), FAMILY_PREFIX);
+        return revoked == null ? 0 : revoked;
+    }
+
+    /**
+     * Verify chữ ký và loại token. Ném RuntimeException nếu không phải refresh token hợp lệ.
+     */
+    public Claims parse(String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtService.parseToken(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new RuntimeException("Invalid refresh token.");
+        }
+        if (!jwtService.isRefreshToken(claims) || claims.getId() == null
+                || claims.get(JwtService.CLAIM_FAMILY, String.class) == null
+                || claims.get(JwtService.CLAIM_USER_ID, String.class) == null) {
+            throw new RuntimeException("Invalid refresh token.");
+        }
+        return claims;
+    }
+
+    private static String familyKey(String familyId) {
+        return FAMILY_PREFIX + familyId;
+    }
+
+    private static String userKey(UUID userId) {
+        return USER_PREFIX + userId;
+    }
+
+    private static RedisScript<Long> script(String location) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(Long.class);
+        return script;
+    }
+}
@@ -2,27 +2,38 @@ package iuh.fit.se.phazelsound.modules.auth.service.impl;
 
 import iuh.fit.se.phazelsound.common.service.EmailService;
 import iuh.fit.se.phazelsound.modules.auth.dto.request.LoginUserRequest;
+import iuh.fit.se.phazelsound.modules.auth.dto.request.RefreshTokenRequest;
 import iuh.fit.se.phazelsound.modules.auth.dto.request.RegisterUserRequest;
 import iuh.fit.se.phazelsound.modules.auth.dto.request.ResetPasswordRequest;
 import iuh.fit.se.phazelsound.modules.auth.dto.response.AuthResponse;
 import iuh.fit.se.phazelsound.modules.auth.entity.AuthProvider;
 import iuh.fit.se.phazelsound.modules.auth.entity.UserRole;
+import iuh.fit.se.phazelsound.modules.auth.security.TokenRevocationService;
 import iuh.fit.se.phazelsound.modules.auth.service.AuthService;
 import iuh.fit.se.phazelsound.modules.auth.service.JwtService;
+import iuh.fit.se.phazelsound.modules.auth.service.LoginAttemptService;
+import iuh.fit.se.phazelsound.modules.auth.service.OtpStore;
+import iuh.fit.se.phazelsound.modules.auth.service.RefreshTokenService;
 import iuh.fit.se.phazelsound.modules.user.entity.User;
 import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
 import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import iuh.fit.se.phazelsound.modules.user.service.IdentifierResolver;
+import iuh.fit.se.phazelsound.modules.user.service.UserLookupService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
-import java.util.Random;
+import java.util.Locale;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -30,89 +41,120 @@ import java.util.Random;
 public class AuthServiceImpl implements AuthService {
 
     private final UserRepository userRepository;
+    private final UserLookupService userLookupService;
     private final PasswordEncoder passwordEncoder;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final OtpStore otpStore;
     private final EmailService emailService;
 
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
-
-    @Value("${application.security.otp.expiration-minutes}")
-    private long otpExpirationMinutes;
+    private final LoginAttemptService loginAttemptService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final IdentifierResolver identifierResolver;
 
     @Override
     public String register(RegisterUserRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("Email already exist!");
-        }
-        if (request.getPhoneNumber() != null && userRepository.existsByPhone(request.getPhoneNumber())) {
-            throw new RuntimeException("Phone number already exist!");
+        // Lưu email/phone ở dạng chuẩn để login chỉ cần so bằng trên một cột có index
+        String email = identifierResolver.normalizeEmail(request.getEmail());
+        String phone = null;
+        if (request.getPhoneNumber() != null && !request.getPhoneNumber().isBlank()) {
+            phone = identifierResolver.normalizePhone(request.getPhoneNumber());
+            if (phone == null) {
+                throw new RuntimeException("Invalid phone number.");
+            }
         }
 
+        // Insert thẳng, để unique constraint của email/phone chặn trùng: một câu lệnh, không có race check-then-act
         User newUser = User.builder()
                 .fullName(request.getName())
-                .email(request.getEmail())
-                .phone(request.getPhoneNumber())
+                .email(email)
+                .phone(phone)
                 .password(passwordEncoder.encode(request.getPassword()))
                 .role(UserRole.USER)
                 .status(UserStatus.UNVERIFIED)
                 .provider(AuthProvider.LOCAL)
                 .build();
-        userRepository.save(newUser);
+        try {
+            userRepository.saveAndFlush(newUser);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateUser(e);
+        }
+        // Báo cho mọi node rằng user vừa được ghi: verify/resend OTP ngay sau đó đọc primary, không đọc replica còn trễ
+        userLookupService.evict(newUser);
 
-        String otp = generateOtp();
-        String redisKey = "OTP_REGISTER:" + request.getEmail();
-        redisTemplate.opsForValue().set(redisKey, otp, Duration.ofMinutes(otpExpirationMinutes));
+        String otp = otpStore.issue(OtpStore.Purpose.REGISTER, email);
 
-        log.info("Saved OTP to Redis: Key={}, OTP={}", redisKey, otp);
-        emailService.sendRegisterOtp(request.getEmail(), request.getName(), otp);
+        emailService.sendRegisterOtp(email, request.getName(), otp);
 
         return "Registration successful. Please check your email to verify your account!";
     }
 
-    @Override
-    public String verifyRegisterOtp(String email, String otp) {
-        String redisKey = "OTP_REGISTER:" + email;
-        Object storedOtp = redisTemplate.opsForValue().get(redisKey);
-
-        if (storedOtp == null) {
-            throw new RuntimeException("The OTP code has expired or is incorrect.");
+    // Đổi lỗi vi phạm unique constraint về đúng thông báo cũ; Postgres ghi "Key (email)=(...)" trong message
+    private static RuntimeException duplicateUser(DataIntegrityViolationException e) {
+        StringBuilder detail = new StringBuilder(String.valueOf(e.getMostSpecificCause().getMessage()));
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                detail.append(' ').append(violation.getConstraintName());
+            }
         }
-
-        if (!storedOtp.toString().equals(otp)) {
-            throw new RuntimeException("OTP incorrect.");
+        String text = detail.toString().toLowerCase(Locale.ROOT);
+        if (text.contains(User.UK_PHONE) || text.contains("(phone)")) {
+            return new RuntimeException("Phone number already exist!");
+        }
+        if (text.contains(User.UK_EMAIL) || text.contains("(email)")) {
+            return new RuntimeException("Email already exist!");
         }
+        return e;
+    }
 
-        User user = userRepository.findByEmail(email)
+    @Override
+    public String verifyRegisterOtp(String email, String otp) {
+        email = identifierResolver.normalizeEmail(email);
+        // Tra user trước khi tiêu OTP: không tìm thấy thì mã vẫn còn để thử lại
+        User user = userLookupService.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Not found user."));
 
         if (user.getStatus() == UserStatus.ACTIVE) {
-            redisTemplate.delete(redisKey);
             return "This account has been activated.";
         }
 
-        user.setStatus(UserStatus.ACTIVE);
-        userRepository.save(user);
+        switch (otpStore.verifyAndConsume(OtpStore.Purpose.REGISTER, email, otp)) {
+            case EXPIRED -> throw new RuntimeException("The OTP code has expired or is incorrect.");
+            case INVALID -> throw new RuntimeException("OTP incorrect.");
+            case EXHAUSTED -> throw new RuntimeException("Too many incorrect OTP attempts. Please request a new code.");
+            case VALID -> { }
+        }
 
-        redisTemplate.delete(redisKey);
+        userRepository.updateStatus(user.getId(), UserStatus.ACTIVE);
+        userLookupService.evict(user);
 
         return "Verification successful. Account has been activated.";
     }
 
     @Override
     public AuthResponse login(LoginUserRequest request) {
-        User user = userRepository.findByEmailOrPhone(request.getIdentifier(), request.getIdentifier())
-                .orElseThrow(() -> new RuntimeException("Not found user."));
-
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        user.getEmail(),
-                        request.getPassword()
-                )
-        );
+        // Đang bị khoá thì dừng ở đây: chưa tra DB, chưa chạy BCrypt
+        long previousFailures = loginAttemptService.checkAllowed(request.getIdentifier());
+
+        // Provider tự load user (một lần), kiểm tra password và status, rồi trả lại chính instance đó
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            request.getIdentifier(),
+                            request.getPassword()
+                    )
+            );
+        } catch (BadCredentialsException e) {
+            loginAttemptService.recordFailure(request.getIdentifier());
+            throw e;
+        }
+        loginAttemptService.recordSuccess(request.getIdentifier(), previousFailures);
+        User user = (User) authentication.getPrincipal();
 
         String accessToken = jwtService.generateAccessToken(user);
-        String refreshToken = jwtService.generateRefreshToken(user);
+        String refreshToken = refreshTokenService.issue(user);
 
         return AuthResponse.builder()
                 .accessToken(accessToken)
@@ -120,18 +162,60 @@ public class AuthServiceImpl implements AuthService {
                 .build();
     }
 
+    @Override
+    public AuthResponse refresh(RefreshTokenRequest request) {
+        // Không chạy BCrypt: chỉ một script Redis để xoay vòng token và một lần tra user (qua cache)
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+
+        User user = userLookupService.findByEmail(rotation.subject()).orElse(null);
+        if (user == null || user.getStatus() != UserStatus.ACTIVE) {
+            refreshTokenService.revokeAll(rotation.userId());
+            tokenRevocationService.revokeUser(rotation.userId());
+            throw new RuntimeException("Account is not active.");
+        }
+
+        return AuthResponse.builder()
+                .accessToken(jwtService.generateAccessToken(user))
+                .refreshToken(rotation.refreshToken())
+                .build();
+    }
+
+    @Override
+    public String logout(RefreshTokenRequest request, String authorization) {
+        refreshTokenService.revoke(request.getRefreshToken());
+
+        // Access token đi kèm (nếu có) cũng hết hiệu lực ngay, không chờ tới exp
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            try {
+                Claims claims = jwtService.parseToken(authorization.substring("Bearer ".length()));
+                if (!jwtService.isRefreshToken(claims)) {
+                    tokenRevocationService.revokeToken(claims);
+                }
+            } catch (JwtException | IllegalArgumentException e) {
+                log.debug("Bỏ qua access token không hợp lệ khi logout: {}", e.getMessage());
+            }
+        }
+        return "Logout successful.";
+    }
+
+    @Override
+    public String logoutAll(RefreshTokenRequest request) {
+        UUID userId = refreshTokenService.revokeAll(request.getRefreshToken());
+        tokenRevocationService.revokeUser(userId);
+        return "Logged out from all devices.";
+    }
+
     @Override
     public String resendRegisterOtp(String email) {
-        User user = userRepository.findByEmail(email)
+        email = identifierResolver.normalizeEmail(email);
+        User user = userLookupService.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Email not registered."));
 
         if (user.getStatus() == UserStatus.ACTIVE) {
             throw new RuntimeException("This account has been activated.");
         }
 
-        String otp = generateOtp();
-        String redisKey = "OTP_REGISTER:" + email;
-        redisTemplate.opsForValue().set(redisKey, otp, Duration.ofMinutes(otpExpirationMinutes));
+        String otp = otpStore.issue(OtpStore.Purpose.REGISTER, email);
 
         emailService.sendRegisterOtp(email, user.getFullName(), otp);
 
@@ -140,13 +224,11 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public String sendForgotPasswordOtp(String email) {
-        User user = userRepository.findByEmail(email)
+        email = identifierResolver.normalizeEmail(email);
+        User user = userLookupService.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Email not found."));
 
-        String otp = generateOtp();
-
-        String redisKey = "OTP_FORGOT:" + email;
-        redisTemplate.opsForValue().set(redisKey, otp, Duration.ofMinutes(otpExpirationMinutes));
+        String otp = otpStore.issue(OtpStore.Purpose.FORGOT_PASSWORD, email);
 
         emailService.sendForgotPasswordOtp(email, user.getFullName(), otp);
 
@@ -155,28 +237,23 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public String resetPassword(ResetPasswordRequest request) {
-        String redisKey = "OTP_FORGOT:" + request.getEmail();
-        Object storedOtp = redisTemplate.opsForValue().get(redisKey);
-
-        if (storedOtp == null) {
-            throw new RuntimeException("The OTP has expired or does not exist.");
-        }
-        if (!storedOtp.toString().equals(request.getOtp())) {
-            throw new RuntimeException("OTP incorrect.");
-        }
-
-        User user = userRepository.findByEmail(request.getEmail())
+        String email = identifierResolver.normalizeEmail(request.getEmail());
+        User user = userLookupService.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Not found user."));
 
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-        userRepository.save(user);
+        switch (otpStore.verifyAndConsume(OtpStore.Purpose.FORGOT_PASSWORD, email, request.getOtp())) {
+            case EXPIRED -> throw new RuntimeException("The OTP has expired or does not exist.");
+            case INVALID -> throw new RuntimeException("OTP incorrect.");
+            case EXHAUSTED -> throw new RuntimeException("Too many incorrect OTP attempts. Please request a new code.");
+            case VALID -> { }
+        }
 
-        redisTemplate.delete(redisKey);
+        userRepository.updatePassword(user.getId(), passwordEncoder.encode(request.getNewPassword()));
+        userLookupService.evict(user);
+        // Đổi mật khẩu thì mọi phiên đang đăng nhập phải login lại
+        refreshTokenService.revokeAll(user.getId());
+        tokenRevocationService.revokeUser(user.getId());
 
         return "Password reset successful";
     }
-
-    private String generateOtp() {
-        return String.format("%06d", new Random().nextInt(999999));
-    }
 }
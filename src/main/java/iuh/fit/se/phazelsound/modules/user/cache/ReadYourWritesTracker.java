@@ -0,0 +1,48 @@
+package iuh.fit.se.phazelsound.modules.user.cache;
+
+import iuh.fit.se.phazelsound.common.cache.BoundedTtlCache;
+import iuh.fit.se.phazelsound.common.datasource.ReplicaRoutingDataSource;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Ghi nhớ các user vừa bị ghi (qua {@link UserInvalidatedEvent}, nên mọi node đều biết) trong một cửa sổ ngắn.
+ * Trong cửa sổ đó, lần đọc DB của user này đi primary để không nạp lại bản cũ từ replica còn trễ vào cache.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    @Value("${application.datasource.read-your-writes-ms:5000}")
+    private long windowMillis;
+
+    @Value("${application.datasource.read-your-writes-size:10000}")
+    private int maxEntries;
+
+    private BoundedTtlCache<String, Boolean> recentWrites;
+
+    @PostConstruct
+    void init() {
+        this.recentWrites = new BoundedTtlCache<>(maxEntries);
+    }
+
+    @EventListener
+    public void onUserInvalidated(UserInvalidatedEvent event) {
+        long expiresAt = System.currentTimeMillis() + windowMillis;
+        recentWrites.put(event.userId().toString(), Boolean.TRUE, expiresAt);
+        recentWrites.put(event.email(), Boolean.TRUE, expiresAt);
+        if (event.phone() != null) {
+            recentWrites.put(event.phone(), Boolean.TRUE, expiresAt);
+        }
+    }
+
+    /**
+     * @param key id, email hoặc số điện thoại (đã chuẩn hoá) của user
+     */
+    public <T> T read(String key, Supplier<T> loader) {
+        return recentWrites.get(key) != null ? ReplicaRoutingDataSource.onPrimary(loader) : loader.get();
+    }
+}
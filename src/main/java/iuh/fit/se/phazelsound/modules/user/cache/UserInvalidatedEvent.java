@@ -0,0 +1,9 @@
+package iuh.fit.se.phazelsound.modules.user.cache;
+
+import java.util.UUID;
+
+/**
+ * Phát trên mọi node khi thông tin đăng nhập của user (status, password, role) thay đổi.
+ */
+public record UserInvalidatedEvent(UUID userId, String email, String phone) {
+}
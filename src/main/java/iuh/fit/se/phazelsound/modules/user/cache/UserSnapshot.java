@@ -0,0 +1,62 @@
+package iuh.fit.se.phazelsound.modules.user.cache;
+
+import iuh.fit.se.phazelsound.modules.auth.entity.AuthProvider;
+import iuh.fit.se.phazelsound.modules.auth.entity.UserRole;
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Bản chụp bất biến của {@link User} để lưu trong cache L1/L2.
+ * Mỗi lần đọc cache đều dựng một {@code User} mới nên caller có thể sửa entity mà không ảnh hưởng cache.
+ * Hash password chỉ được giữ trong L1 (trong heap); bản ghi lên L2 dùng chung phải qua {@link #withoutPassword()}.
+ */
+public record UserSnapshot(
+        UUID id,
+        String email,
+        String password,
+        String fullName,
+        String phone,
+        String avatarUrl,
+        UserRole role,
+        UserStatus status,
+        AuthProvider provider,
+        String providerId,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user.getId(), user.getEmail(), user.getPassword(), user.getFullName(),
+                user.getPhone(), user.getAvatarUrl(), user.getRole(), user.getStatus(), user.getProvider(),
+                user.getProviderId(), user.getCreatedAt(), user.getUpdatedAt());
+    }
+
+    public UserSnapshot withoutPassword() {
+        return withPassword(null);
+    }
+
+    public UserSnapshot withPassword(String password) {
+        return new UserSnapshot(id, email, password, fullName, phone, avatarUrl, role, status, provider, providerId,
+                createdAt, updatedAt);
+    }
+
+    public User toUser() {
+        return User.builder()
+                .id(id)
+                .email(email)
+                .password(password)
+                .fullName(fullName)
+                .phone(phone)
+                .avatarUrl(avatarUrl)
+                .role(role)
+                .status(status)
+                .provider(provider)
+                .providerId(providerId)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
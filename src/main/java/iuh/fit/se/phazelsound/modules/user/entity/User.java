@@ -17,20 +17,28 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
+// Index thật nằm trong db/migration (kể cả index partial/biểu thức không khai báo được ở đây)
 @Table(name = "users", indexes = {
-        @Index(name = "idx_users_email", columnList = "email")})
+        @Index(name = "idx_users_status", columnList = "status")},
+        uniqueConstraints = {
+                @UniqueConstraint(name = User.UK_EMAIL, columnNames = "email"),
+                @UniqueConstraint(name = User.UK_PHONE, columnNames = "phone")})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class User implements UserDetails {
+    public static final String UK_EMAIL = "uk_users_email";
+    public static final String UK_PHONE = "uk_users_phone";
+
+    // UUIDv7 tăng dần cho bản ghi mới; id v4 cũ vẫn hợp lệ, cùng kiểu cột uuid
     @Id
     @GeneratedValue
-    @UuidGenerator
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private UUID id;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
 
     @Column(nullable = true)
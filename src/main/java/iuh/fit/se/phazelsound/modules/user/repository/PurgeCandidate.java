@@ -0,0 +1,10 @@
+package iuh.fit.se.phazelsound.modules.user.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Những cột job dọn tài khoản cần: khoá keyset (createdAt, id) và email/phone để xoá OTP, cache.
+ */
+public record PurgeCandidate(UUID id, String email, String phone, LocalDateTime createdAt) {
+}
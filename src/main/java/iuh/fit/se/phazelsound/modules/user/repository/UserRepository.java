@@ -1,17 +1,63 @@
 package iuh.fit.se.phazelsound.modules.user.repository;
 
 import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Mặc định read-only để truy vấn đọc được định tuyến sang replica; các hàm ghi tự khai báo {@code @Transactional}.
+ */
 @Repository
+@Transactional(readOnly = true)
 public interface UserRepository extends JpaRepository<User, UUID> {
     boolean existsByEmail(String email);
     boolean existsByPhone(String phone);
 
-    Optional<User> findByEmailOrPhone(String email, String phone);
+    // Mỗi hàm chỉ so một cột có unique index; giá trị truyền vào phải đã chuẩn hoá qua IdentifierResolver
     Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+    Optional<User> findByPhone(String phone);
+
+    /**
+     * Keyset theo (created_at, id) trên partial index {@code idx_users_unverified_created_at}:
+     * mỗi lô bắt đầu ngay sau dòng cuối của lô trước, không quét lại các index entry vừa xoá.
+     */
+    @Query("select new iuh.fit.se.phazelsound.modules.user.repository.PurgeCandidate(u.id, u.email, u.phone, u.createdAt) "
+            + "from User u where u.status = iuh.fit.se.phazelsound.modules.user.entity.UserStatus.UNVERIFIED "
+            + "and u.createdAt < :cutoff and (u.createdAt, u.id) > (:afterCreatedAt, :afterId) "
+            + "order by u.createdAt, u.id")
+    List<PurgeCandidate> findPurgeCandidates(LocalDateTime cutoff, LocalDateTime afterCreatedAt, UUID afterId, Limit limit);
+
+    // Cache L2 không chứa hash password; đường xác thực lấy riêng cột này theo khoá chính
+    @Query("select u.password from User u where u.id = :id")
+    Optional<String> findPasswordById(UUID id);
+
+    @Query("select u.status from User u where u.id = :id")
+    Optional<UserStatus> findStatusById(UUID id);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.status = :status, u.updatedAt = local datetime where u.id = :id")
+    int updateStatus(UUID id, UserStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password, u.updatedAt = local datetime where u.id = :id")
+    int updatePassword(UUID id, String password);
+
+    // Kiểm tra lại status khi xoá: user vừa xác thực giữa lúc đọc lô và lúc xoá thì được giữ lại
+    @Transactional
+    @Modifying
+    @Query("delete from User u where u.id in :ids and u.status = :status")
+    int deleteByIdInAndStatus(Collection<UUID> ids, UserStatus status);
+}
@@ -0,0 +1,76 @@
+package iuh.fit.se.phazelsound.modules.user.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Phân loại identifier đăng nhập là email hay số điện thoại và đưa về dạng chuẩn đã lưu trong DB:
+ * email viết thường, số điện thoại dạng E.164 ({@code +84...}). Nhờ vậy mỗi lần tra chỉ chạm một cột có index.
+ */
+@Component
+public class IdentifierResolver {
+
+    public enum Type {
+        EMAIL, PHONE
+    }
+
+    public record Identifier(Type type, String value) {
+    }
+
+    // Mã quốc gia dùng cho số nhập dạng nội địa (0912...)
+    @Value("${application.user.identifier.default-country-code:84}")
+    private String defaultCountryCode = "84";
+
+    public Identifier resolve(String raw) {
+        String trimmed = raw == null ? "" : raw.trim();
+        if (trimmed.indexOf('@') < 0) {
+            String phone = normalizePhone(trimmed);
+            if (phone != null) {
+                return new Identifier(Type.PHONE, phone);
+            }
+        }
+        return new Identifier(Type.EMAIL, normalizeEmail(trimmed));
+    }
+
+    public String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Trả về số dạng E.164, hoặc null nếu chuỗi không phải số điện thoại.
+     */
+    public String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String value = phone.trim();
+        boolean international = value.startsWith("+");
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = international ? 1 : 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c != ' ' && c != '-' && c != '.' && c != '(' && c != ')') {
+                return null;
+            }
+        }
+
+        String e164;
+        if (international) {
+            e164 = digits.toString();
+        } else if (digits.length() > 2 && digits.charAt(0) == '0' && digits.charAt(1) == '0') {
+            e164 = digits.substring(2);
+        } else if (digits.length() > 1 && digits.charAt(0) == '0') {
+            e164 = defaultCountryCode + digits.substring(1);
+        } else {
+            e164 = digits.toString();
+        }
+        // E.164: tối đa 15 chữ số, không bắt đầu bằng 0
+        if (e164.length() < 8 || e164.length() > 15 || e164.charAt(0) == '0') {
+            return null;
+        }
+        return "+" + e164;
+    }
+}
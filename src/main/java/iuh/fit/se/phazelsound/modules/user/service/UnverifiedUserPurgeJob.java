@@ -0,0 +1,175 @@
+package iuh.fit.se.phazelsound.modules.user.service;
+
+import iuh.fit.se.phazelsound.common.lock.RedisLock;
+import iuh.fit.se.phazelsound.modules.auth.service.OtpStore;
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import iuh.fit.se.phazelsound.modules.user.repository.PurgeCandidate;
+import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Dọn tài khoản UNVERIFIED đã quá hạn OTP cộng thêm một khoảng grace, kèm OTP và cache còn sót của chúng.
+ * Tài khoản còn OTP đăng ký chưa hết hạn (vừa xin gửi lại mã) được bỏ qua tới lượt sau.
+ * Chỉ một node chạy mỗi lượt (khoá Redis); xoá theo lô nhỏ đi theo keyset (created_at, id), nghỉ giữa các lô
+ * để không giữ lock dòng lâu và không dồn WAL/IO lên primary.
+ */
+@Component
+@Slf4j
+public class UnverifiedUserPurgeJob {
+
+    private static final String LOCK_NAME = "unverified-user-purge";
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final UUID KEYSET_START_ID = new UUID(0, 0);
+
+    private final UserRepository userRepository;
+    private final UserLookupService userLookupService;
+    private final OtpStore otpStore;
+    private final RedisLock redisLock;
+    private final DistributionSummary purgedPerRun;
+    private final Timer runTimer;
+
+    @Value("${application.user.purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.security.otp.expiration-minutes:5}")
+    private long otpExpirationMinutes;
+
+    @Value("${application.user.purge.grace-minutes:1440}")
+    private long graceMinutes;
+
+    @Value("${application.user.purge.batch-size:500}")
+    private int batchSize;
+
+    @Value("${application.user.purge.batch-pause-ms:200}")
+    private long batchPauseMillis;
+
+    // Phải nhỏ hơn lock-ttl-ms để lượt chạy luôn kết thúc trước khi khoá hết hạn
+    @Value("${application.user.purge.max-run-ms:300000}")
+    private long maxRunMillis;
+
+    @Value("${application.user.purge.lock-ttl-ms:600000}")
+    private long lockTtlMillis;
+
+    public UnverifiedUserPurgeJob(UserRepository userRepository,
+                                  UserLookupService userLookupService,
+                                  OtpStore otpStore,
+                                  RedisLock redisLock,
+                                  MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userLookupService = userLookupService;
+        this.otpStore = otpStore;
+        this.redisLock = redisLock;
+        this.purgedPerRun = DistributionSummary.builder("users.purge.deleted")
+                .description("Số tài khoản UNVERIFIED bị xoá trong mỗi lượt dọn")
+                .baseUnit("rows")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("users.purge.duration")
+                .description("Thời gian một lượt dọn tài khoản UNVERIFIED")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${application.user.purge.cron:0 */15 * * * *}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        String token;
+        try {
+            token = redisLock.tryLock(LOCK_NAME, Duration.ofMillis(lockTtlMillis));
+        } catch (DataAccessException e) {
+            log.warn("Không lấy được khoá dọn tài khoản: {}", e.getMessage());
+            return;
+        }
+        if (token == null) {
+            log.debug("Node khác đang dọn tài khoản UNVERIFIED, bỏ qua lượt này");
+            return;
+        }
+        try {
+            long deleted = runTimer.record(this::purgeBatches);
+            purgedPerRun.record(deleted);
+            if (deleted > 0) {
+                log.info("Đã xoá {} tài khoản UNVERIFIED quá hạn", deleted);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Dọn tài khoản UNVERIFIED thất bại: {}", e.getMessage());
+        } finally {
+            redisLock.unlock(LOCK_NAME, token);
+        }
+    }
+
+    long purgeBatches() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(otpExpirationMinutes + graceMinutes);
+        long deadline = System.currentTimeMillis() + maxRunMillis;
+
+        LocalDateTime afterCreatedAt = KEYSET_START;
+        UUID afterId = KEYSET_START_ID;
+        long deleted = 0;
+        while (true) {
+            List<PurgeCandidate> batch = userRepository.findPurgeCandidates(cutoff, afterCreatedAt, afterId,
+                    Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<PurgeCandidate> expired = withoutLiveOtp(batch);
+            if (!expired.isEmpty()) {
+                deleted += userRepository.deleteByIdInAndStatus(expired.stream().map(PurgeCandidate::id).toList(),
+                        UserStatus.UNVERIFIED);
+                cleanUp(expired);
+            }
+
+            if (batch.size() < batchSize || System.currentTimeMillis() >= deadline) {
+                break;
+            }
+            PurgeCandidate last = batch.get(batch.size() - 1);
+            afterCreatedAt = last.createdAt();
+            afterId = last.id();
+            try {
+                Thread.sleep(batchPauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    // created_at chỉ là mốc đăng ký: user có thể vừa xin mã mới qua resendRegisterOtp và đang nhập nó
+    private List<PurgeCandidate> withoutLiveOtp(List<PurgeCandidate> batch) {
+        Set<String> pending = otpStore.pending(OtpStore.Purpose.REGISTER,
+                batch.stream().map(PurgeCandidate::email).toList());
+        return pending.isEmpty()
+                ? batch
+                : batch.stream().filter(candidate -> !pending.contains(candidate.email())).toList();
+    }
+
+    // OTP đăng ký và cache L1/L2 của các tài khoản vừa xoá; user đã kịp xác thực thì OTP cũng đã bị tiêu
+    private void cleanUp(List<PurgeCandidate> batch) {
+        try {
+            otpStore.discard(OtpStore.Purpose.REGISTER, batch.stream().map(PurgeCandidate::email).toList());
+        } catch (DataAccessException e) {
+            log.warn("Không xoá được OTP của tài khoản đã dọn: {}", e.getMessage());
+        }
+        userLookupService.evictAll(batch.stream()
+                .map(candidate -> User.builder()
+                        .id(candidate.id())
+                        .email(candidate.email())
+                        .phone(candidate.phone())
+                        .build())
+                .toList());
+    }
+}
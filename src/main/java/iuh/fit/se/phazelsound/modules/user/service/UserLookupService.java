@@ -0,0 +1,257 @@
+package iuh.fit.se.phazelsound.modules.user.service;
+
+import iuh.fit.se.phazelsound.common.cache.BoundedTtlCache;
+import iuh.fit.se.phazelsound.modules.user.cache.ReadYourWritesTracker;
+import iuh.fit.se.phazelsound.modules.user.cache.UserInvalidatedEvent;
+import iuh.fit.se.phazelsound.modules.user.cache.UserSnapshot;
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.DefaultStringRedisConnection;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Tra cứu user qua hai tầng cache đứng trước {@link UserRepository}:
+ * L1 trong heap (TTL ngắn) và L2 dùng chung trên Redis. L2 không bao giờ chứa hash password:
+ * chỉ {@link #findByEmailOrPhone(String)} (đường xác thực) cần tới nó và tự nạp từ DB khi L1 chưa có.
+ * Khi status/password/role đổi, gọi {@link #evict(User)} để thay L2 bằng tombstone và báo cho mọi node xoá L1 qua pub/sub.
+ * L2 chỉ được ghi bằng SET NX: reader nào nạp bản cũ từ DB trước lần ghi sẽ gặp tombstone và không ghi đè được.
+ * Tương tự với L1, mỗi node nhớ mốc evict gần nhất của từng identifier; lần nạp bắt đầu trước mốc đó không được giữ lại trong L1.
+ * Thời gian tra cứu ghi vào {@code auth.user.lookup}, tag {@code source} là tầng trả kết quả (l1, l2, db).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserLookupService implements MessageListener {
+
+    private static final String L2_PREFIX = "USER_CACHE:";
+    private static final String INVALIDATION_CHANNEL = "USER_CACHE_INVALIDATION";
+    private static final String FIELD_SEPARATOR = "|";
+    private static final String TOMBSTONE = "!";
+
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final JsonMapper jsonMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdentifierResolver identifierResolver;
+    private final ReadYourWritesTracker readYourWrites;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${application.user.cache.l1-size:50000}")
+    private int l1Size;
+
+    @Value("${application.user.cache.l1-ttl-seconds:30}")
+    private long l1TtlSeconds;
+
+    @Value("${application.user.cache.l2-ttl-seconds:60}")
+    private long l2TtlSeconds;
+
+    // Phải lớn hơn thời gian một lần nạp user từ DB (kể cả độ trễ replica) để chặn được lần ghi L2 bản cũ
+    @Value("${application.user.cache.tombstone-ms:10000}")
+    private long tombstoneMillis;
+
+    private BoundedTtlCache<String, UserSnapshot> l1;
+
+    // identifier -> System.nanoTime() của lần evict gần nhất, sống bằng tombstone L2
+    private BoundedTtlCache<String, Long> evictedAt;
+
+    private Timer l1Timer;
+    private Timer l2Timer;
+    private Timer dbTimer;
+
+    @PostConstruct
+    void init() {
+        this.l1 = new BoundedTtlCache<>(l1Size);
+        this.evictedAt = new BoundedTtlCache<>(l1Size);
+        this.l1Timer = lookupTimer("l1");
+        this.l2Timer = lookupTimer("l2");
+        this.dbTimer = lookupTimer("db");
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    private Timer lookupTimer(String source) {
+        return Timer.builder("auth.user.lookup")
+                .description("Thời gian tra cứu user qua cache L1/L2 hoặc database")
+                .tag("source", source)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Optional<User> findByEmail(String email) {
+        String normalized = identifierResolver.normalizeEmail(email);
+        return lookup(normalized, false, () -> userRepository.findByEmail(normalized));
+    }
+
+    /**
+     * Tra theo email hoặc số điện thoại: nhận diện loại identifier rồi chỉ query đúng một cột.
+     * Dùng cho xác thực nên user trả về luôn kèm hash password.
+     */
+    public Optional<User> findByEmailOrPhone(String identifier) {
+        IdentifierResolver.Identifier resolved = identifierResolver.resolve(identifier);
+        return lookup(resolved.value(), true, resolved.type() == IdentifierResolver.Type.PHONE
+                ? () -> userRepository.findByPhone(resolved.value())
+                : () -> userRepository.findByEmail(resolved.value()));
+    }
+
+    /**
+     * Xoá user khỏi L2 và L1 của mọi node. Gọi sau mỗi lần ghi làm đổi status, password hoặc role.
+     */
+    public void evict(User user) {
+        evictAll(List.of(user));
+    }
+
+    /**
+     * Như {@link #evict(User)} cho nhiều user: các lệnh ghi tombstone L2 và PUBLISH gửi chung một pipeline.
+     */
+    public void evictAll(Collection<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(users.size() * 2);
+        List<String> messages = new ArrayList<>(users.size());
+        for (User user : users) {
+            evictLocal(user.getId(), user.getEmail(), user.getPhone());
+            keys.add(L2_PREFIX + user.getEmail());
+            if (user.getPhone() != null) {
+                keys.add(L2_PREFIX + user.getPhone());
+            }
+            messages.add(String.join(FIELD_SEPARATOR,
+                    user.getId().toString(), user.getEmail(), user.getPhone() == null ? "" : user.getPhone()));
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection commands = new DefaultStringRedisConnection(connection);
+                for (String key : keys) {
+                    commands.pSetEx(key, tombstoneMillis, TOMBSTONE);
+                }
+                for (String message : messages) {
+                    commands.publish(INVALIDATION_CHANNEL, message);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            log.warn("Không xoá được cache của {} user trên Redis: {}", users.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\" + FIELD_SEPARATOR, -1);
+        if (parts.length != 3) {
+            return;
+        }
+        evictLocal(UUID.fromString(parts[0]), parts[1], parts[2].isEmpty() ? null : parts[2]);
+    }
+
+    private Optional<User> lookup(String identifier, boolean withPassword, Supplier<Optional<User>> loader) {
+        long start = System.nanoTime();
+        Timer timer = l1Timer;
+        UserSnapshot snapshot = l1.get(identifier);
+        if (snapshot == null) {
+            timer = l2Timer;
+            snapshot = readL2(identifier);
+            if (snapshot == null) {
+                timer = dbTimer;
+                Optional<User> loaded = readYourWrites.read(identifier, loader);
+                if (loaded.isEmpty()) {
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    return Optional.empty();
+                }
+                snapshot = UserSnapshot.of(loaded.get());
+                writeL2(identifier, snapshot.withoutPassword());
+            }
+            putL1(identifier, snapshot, start);
+        }
+        if (withPassword && snapshot.password() == null) {
+            // Snapshot đến từ L2: lấy hash theo khoá chính rồi giữ lại trong L1
+            UUID userId = snapshot.id();
+            snapshot = snapshot.withPassword(readYourWrites.read(identifier,
+                    () -> userRepository.findPasswordById(userId)).orElse(null));
+            putL1(identifier, snapshot, start);
+        }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Optional.of(snapshot.toUser());
+    }
+
+    private void putL1(String identifier, UserSnapshot snapshot, long loadStartedAt) {
+        l1.put(identifier, snapshot, System.currentTimeMillis() + l1TtlSeconds * 1000);
+        // Kiểm tra sau khi put: evictLocal ghi mốc trước rồi mới remove, nên dù xen kẽ thế nào bản cũ cũng không ở lại L1
+        Long evicted = evictedAt.get(identifier);
+        if (evicted != null && evicted - loadStartedAt >= 0) {
+            l1.remove(identifier);
+        }
+    }
+
+    private UserSnapshot readL2(String identifier) {
+        String key = L2_PREFIX + identifier;
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            return json == null || TOMBSTONE.equals(json) ? null : jsonMapper.readValue(json, UserSnapshot.class);
+        } catch (DataAccessException e) {
+            log.debug("Bỏ qua cache L2 khi đọc user: {}", e.getMessage());
+            return null;
+        } catch (JacksonException e) {
+            // Entry hỏng hoặc ghi bởi phiên bản UserSnapshot khác: xoá để lần sau nạp lại từ DB
+            log.warn("Xoá cache L2 không đọc được của user: {}", e.getOriginalMessage());
+            deleteL2(key);
+            return null;
+        }
+    }
+
+    private void deleteL2(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (DataAccessException e) {
+            log.debug("Không xoá được cache L2 của user: {}", e.getMessage());
+        }
+    }
+
+    private void writeL2(String identifier, UserSnapshot snapshot) {
+        try {
+            // Không ghi đè tombstone của một lần ghi vừa xảy ra trong lúc đang nạp từ DB
+            redisTemplate.opsForValue().setIfAbsent(L2_PREFIX + identifier, jsonMapper.writeValueAsString(snapshot),
+                    Duration.ofSeconds(l2TtlSeconds));
+        } catch (DataAccessException e) {
+            log.debug("Bỏ qua cache L2 khi ghi user: {}", e.getMessage());
+        }
+    }
+
+    private void evictLocal(UUID userId, String email, String phone) {
+        long now = System.nanoTime();
+        long expiresAt = System.currentTimeMillis() + tombstoneMillis;
+        evictedAt.put(email, now, expiresAt);
+        l1.remove(email);
+        if (phone != null) {
+            evictedAt.put(phone, now, expiresAt);
+            l1.remove(phone);
+        }
+        eventPublisher.publishEvent(new UserInvalidatedEvent(userId, email, phone));
+    }
+}
@@ -0,0 +1,32 @@
+package iuh.fit.se.phazelsound.modules.user.service;
+
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.stereotype.Service;
+
+/**
+ * Được {@code DaoAuthenticationProvider} gọi sau khi login thành công nếu hash hiện tại
+ * dùng thuật toán hoặc cost cũ, để lưu lại hash mới tính từ password vừa nhập.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserPasswordService implements UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+    private final UserLookupService userLookupService;
+
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = (User) userDetails;
+        userRepository.updatePassword(user.getId(), newPassword);
+        userLookupService.evict(user);
+        user.setPassword(newPassword);
+        log.info("Đã nâng cấp hash password cho user {}", user.getId());
+        return user;
+    }
+}
@@ -0,0 +1,17 @@
+-- Schema users như Hibernate ddl-auto đã tạo trước khi chuyển sang migration.
+-- DB đã có sẵn bảng được baseline ở version 1 (spring.flyway.baseline-on-migrate), nên file này chỉ chạy trên DB mới.
+create table if not exists users (
+    id          uuid         not null,
+    email       varchar(255) not null,
+    password    varchar(255),
+    full_name   varchar(255) not null,
+    phone       varchar(255),
+    avatar_url  varchar(255),
+    role        varchar(255) check (role in ('USER', 'ADMIN')),
+    status      varchar(255) check (status in ('UNVERIFIED', 'ACTIVE', 'BANNED')),
+    provider    varchar(255) check (provider in ('LOCAL', 'GOOGLE', 'FACEBOOK')),
+    provider_id varchar(255),
+    created_at  timestamp(6),
+    updated_at  timestamp(6),
+    constraint users_pkey primary key (id)
+);
@@ -0,0 +1,33 @@
+-- Email lưu dạng chữ thường (xem IdentifierResolver). Chỉ chuẩn hoá những dòng không đụng email đã có;
+-- dòng trùng khi bỏ hoa/thường sẽ làm V3 (unique lower(email)) fail để xử lý tay thay vì gộp tài khoản âm thầm.
+update users u
+set email = lower(trim(u.email))
+where u.email <> lower(trim(u.email))
+  and not exists (select 1 from users o where o.id <> u.id and o.email = lower(trim(u.email)));
+
+-- Thay unique constraint tên ngẫu nhiên do Hibernate sinh bằng constraint có tên cố định,
+-- AuthServiceImpl dựa vào tên này để trả đúng thông báo trùng email/phone.
+do $$
+declare
+    legacy record;
+begin
+    for legacy in
+        select c.conname
+        from pg_constraint c
+        where c.conrelid = 'users'::regclass
+          and c.contype = 'u'
+          and c.conname not in ('uk_users_email', 'uk_users_phone')
+    loop
+        execute format('alter table users drop constraint %I', legacy.conname);
+    end loop;
+
+    if not exists (select 1 from pg_constraint where conrelid = 'users'::regclass and conname = 'uk_users_email') then
+        alter table users add constraint uk_users_email unique (email);
+    end if;
+    if not exists (select 1 from pg_constraint where conrelid = 'users'::regclass and conname = 'uk_users_phone') then
+        alter table users add constraint uk_users_phone unique (phone);
+    end if;
+end $$;
+
+-- Trùng với index của uk_users_email
+drop index if exists idx_users_email;
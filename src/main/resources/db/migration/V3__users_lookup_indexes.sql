@@ -0,0 +1,10 @@
+-- Tạo index không khoá ghi trên bảng đang chạy; Flyway tự chạy migration này ngoài transaction.
+
+-- Unique không phân biệt hoa/thường, chặn cả những lần ghi không đi qua IdentifierResolver
+create unique index concurrently if not exists uk_users_email_ci on users (lower(email));
+
+create index concurrently if not exists idx_users_status on users (status);
+
+-- Job dọn tài khoản chưa xác thực quét theo (created_at, id); index chỉ chứa các dòng UNVERIFIED nên rất nhỏ
+create index concurrently if not exists idx_users_unverified_created_at on users (created_at, id)
+    where status = 'UNVERIFIED';
@@ -0,0 +1,33 @@
+-- Số điện thoại lưu dạng E.164 như IdentifierResolver.normalizePhone tạo ra (login chỉ so đúng dạng này).
+-- Dòng cũ dạng nội địa (0912...), 0084..., hoặc có dấu cách/gạch được viết lại; chuỗi không phải số điện thoại giữ nguyên.
+-- Như email ở V2: dòng nào sau chuẩn hoá trùng với dòng khác thì giữ nguyên để xử lý tay, không gộp tài khoản âm thầm.
+with compacted as (
+    -- Dấu + chỉ hợp lệ ở đầu chuỗi; phần còn lại chỉ được bỏ dấu phân cách
+    select id,
+           trim(phone) like '+%' as international,
+           regexp_replace(case when trim(phone) like '+%' then substr(trim(phone), 2) else trim(phone) end,
+                          '[ .()-]', '', 'g') as compact
+    from users
+    where phone is not null
+),
+digits as (
+    select id,
+           case
+               when international then (case when compact ~ '^[0-9]+$' then compact end)
+               when compact ~ '^00[0-9]+$' then substr(compact, 3)
+               when compact ~ '^0[0-9]+$' then '${default_country_code}' || substr(compact, 2)
+               when compact ~ '^[0-9]+$' then compact
+           end as e164
+    from compacted
+),
+normalized as (
+    select id, '+' || e164 as phone
+    from digits
+    where e164 ~ '^[1-9][0-9]{7,14}$'
+)
+update users u
+set phone = n.phone
+from normalized n
+where u.id = n.id
+  and u.phone <> n.phone
+  and not exists (select 1 from normalized o where o.id <> n.id and o.phone = n.phone);
@@ -0,0 +1,11 @@
+-- KEYS[1]: lock theo identifier, KEYS[2]: lock theo IP, KEYS[3]: bộ đếm lỗi theo identifier
+-- Trả về {lockRemainingMillis, identifierFailures}
+local lockMillis = 0
+for i = 1, 2 do
+    local ttl = redis.call('PTTL', KEYS[i])
+    if ttl > lockMillis then
+        lockMillis = ttl
+    end
+end
+local failures = tonumber(redis.call('GET', KEYS[3]) or '0')
+return {lockMillis, failures}
@@ -0,0 +1,26 @@
+-- Mỗi cặp (KEYS[2i-1]: bộ đếm lỗi, KEYS[2i]: lock) dùng ARGV[i] làm ngưỡng
+-- ARGV[n+1]: thời gian giữ bộ đếm (ms), ARGV[n+2]: lock cơ bản (ms), ARGV[n+3]: lock tối đa (ms)
+-- Lock tăng gấp đôi với mỗi lần sai vượt ngưỡng. Trả về thời gian lock dài nhất vừa đặt (ms).
+local pairCount = #KEYS / 2
+local window = tonumber(ARGV[pairCount + 1])
+local baseLock = tonumber(ARGV[pairCount + 2])
+local maxLock = tonumber(ARGV[pairCount + 3])
+
+local longest = 0
+for i = 1, pairCount do
+    local failKey = KEYS[2 * i - 1]
+    local lockKey = KEYS[2 * i]
+    local threshold = tonumber(ARGV[i])
+
+    local failures = redis.call('INCR', failKey)
+    redis.call('PEXPIRE', failKey, window)
+
+    if failures >= threshold then
+        local lock = math.min(maxLock, baseLock * (2 ^ (failures - threshold)))
+        redis.call('SET', lockKey, failures, 'PX', math.floor(lock))
+        if lock > longest then
+            longest = lock
+        end
+    end
+end
+return math.floor(longest)
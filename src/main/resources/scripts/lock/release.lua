@@ -0,0 +1,7 @@
+-- KEYS[1]: khoá
+-- ARGV[1]: token của node đang giữ khoá
+-- Chỉ xoá khi còn đúng token của mình: khoá đã hết hạn và bị node khác lấy thì giữ nguyên
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,15 @@
+-- KEYS[1]: zset chờ retry (score = thời điểm đến hạn), KEYS[2]: outbox stream
+-- ARGV[1]: now (ms), ARGV[2]: số entry tối đa, ARGV[3]: maxlen của stream
+-- Chuyển các email đã đến hạn retry trở lại stream. Trả về số email đã chuyển.
+local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+for _, payload in ipairs(due) do
+    local fields = cjson.decode(payload)
+    local args = {'XADD', KEYS[2], 'MAXLEN', '~', ARGV[3], '*'}
+    for field, value in pairs(fields) do
+        table.insert(args, field)
+        table.insert(args, tostring(value))
+    end
+    redis.call(unpack(args))
+    redis.call('ZREM', KEYS[1], payload)
+end
+return #due
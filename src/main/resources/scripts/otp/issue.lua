@@ -0,0 +1,7 @@
+-- KEYS[1]: key OTP
+-- ARGV[1]: mã OTP, ARGV[2]: thời gian sống (ms)
+-- Mã mới thay hẳn mã cũ, bộ đếm nhập sai về 0
+redis.call('DEL', KEYS[1])
+redis.call('HSET', KEYS[1], 'code', ARGV[1], 'attempts', 0)
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+return 1
@@ -0,0 +1,6 @@
+-- KEYS[1]: hash bucket chứa OTP
+-- ARGV[1]: field (email), ARGV[2]: mã OTP, ARGV[3]: thời gian sống (ms)
+-- Giá trị field là "<mã>:<số lần sai>"; mã mới thay hẳn mã cũ, bộ đếm nhập sai về 0
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. ':0')
+redis.call('HPEXPIRE', KEYS[1], ARGV[3], 'FIELDS', 1, ARGV[1])
+return 1
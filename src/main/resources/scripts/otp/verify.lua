@@ -0,0 +1,18 @@
+-- KEYS[1]: key OTP
+-- ARGV[1]: mã người dùng nhập, ARGV[2]: số lần nhập sai tối đa
+-- Trả về {status, remainingAttempts}: 1 đúng (đã xoá mã), 0 sai, -1 hết hạn/không có, -2 sai quá số lần (đã xoá mã)
+local stored = redis.call('HGET', KEYS[1], 'code')
+if not stored then
+    return {-1, 0}
+end
+if stored == ARGV[1] then
+    redis.call('DEL', KEYS[1])
+    return {1, 0}
+end
+local maxAttempts = tonumber(ARGV[2])
+local attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1)
+if attempts >= maxAttempts then
+    redis.call('DEL', KEYS[1])
+    return {-2, 0}
+end
+return {0, maxAttempts - attempts}
@@ -0,0 +1,28 @@
+-- KEYS[1]: hash bucket chứa OTP
+-- ARGV[1]: field (email), ARGV[2]: mã người dùng nhập, ARGV[3]: số lần nhập sai tối đa
+-- Trả về giống verify.lua: {1|0|-1|-2, remainingAttempts}
+local stored = redis.call('HGET', KEYS[1], ARGV[1])
+if not stored then
+    return {-1, 0}
+end
+local sep = string.find(stored, ':', 1, true)
+local code = string.sub(stored, 1, sep - 1)
+if code == ARGV[2] then
+    redis.call('HDEL', KEYS[1], ARGV[1])
+    return {1, 0}
+end
+local maxAttempts = tonumber(ARGV[3])
+local attempts = tonumber(string.sub(stored, sep + 1)) + 1
+if attempts >= maxAttempts then
+    redis.call('HDEL', KEYS[1], ARGV[1])
+    return {-2, 0}
+end
+-- HSET xoá TTL của field: lấy TTL còn lại trước rồi đặt lại đúng giá trị đó
+local ttl = redis.call('HPTTL', KEYS[1], 'FIELDS', 1, ARGV[1])[1]
+if ttl <= 0 then
+    redis.call('HDEL', KEYS[1], ARGV[1])
+    return {-1, 0}
+end
+redis.call('HSET', KEYS[1], ARGV[1], code .. ':' .. attempts)
+redis.call('HPEXPIRE', KEYS[1], ttl, 'FIELDS', 1, ARGV[1])
+return {0, maxAttempts - attempts}
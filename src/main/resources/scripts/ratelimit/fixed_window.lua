@@ -0,0 +1,18 @@
+-- KEYS[1]: counter key | ARGV[1]: limit, ARGV[2]: window (ms), ARGV[3]: cost
+-- Trả về {allowed, retryAfterMillis}
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local cost = tonumber(ARGV[3])
+
+local current = redis.call('INCRBY', KEYS[1], cost)
+local ttl = redis.call('PTTL', KEYS[1])
+if ttl < 0 then
+    -- Key mới tạo (hoặc key cũ bị mất TTL): đặt TTL trong cùng script nên không bao giờ sót
+    redis.call('PEXPIRE', KEYS[1], window)
+    ttl = window
+end
+
+if current > limit then
+    return {0, ttl}
+end
+return {1, 0}
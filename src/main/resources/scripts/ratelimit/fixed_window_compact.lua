@@ -0,0 +1,17 @@
+-- KEYS[1]: hash bucket | ARGV[1]: field (counter key), ARGV[2]: limit, ARGV[3]: window (ms), ARGV[4]: cost
+-- Trả về {allowed, retryAfterMillis}; HINCRBY giữ nguyên TTL của field nên cửa sổ không bị kéo dài
+local limit = tonumber(ARGV[2])
+local window = tonumber(ARGV[3])
+local cost = tonumber(ARGV[4])
+
+local current = redis.call('HINCRBY', KEYS[1], ARGV[1], cost)
+local ttl = redis.call('HPTTL', KEYS[1], 'FIELDS', 1, ARGV[1])[1]
+if ttl < 0 then
+    redis.call('HPEXPIRE', KEYS[1], window, 'FIELDS', 1, ARGV[1])
+    ttl = window
+end
+
+if current > limit then
+    return {0, ttl}
+end
+return {1, 0}
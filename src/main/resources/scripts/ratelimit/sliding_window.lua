@@ -0,0 +1,26 @@
+-- KEYS[1]: sorted set log | ARGV[1]: limit, ARGV[2]: window (ms), ARGV[3]: cost
+-- Trả về {allowed, retryAfterMillis}
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local cost = tonumber(ARGV[3])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+local count = redis.call('ZCARD', KEYS[1])
+
+if count + cost > limit then
+    local retry = window
+    local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+    if oldest[2] then
+        retry = tonumber(oldest[2]) + window - now
+    end
+    return {0, retry}
+end
+
+for i = 1, cost do
+    redis.call('ZADD', KEYS[1], now, now .. '-' .. (count + i))
+end
+redis.call('PEXPIRE', KEYS[1], window)
+return {1, 0}
@@ -0,0 +1,8 @@
+-- KEYS[1]: family, KEYS[2]: tập family của user
+-- ARGV[1]: jti hiện hành, ARGV[2]: thời gian sống (ms), ARGV[3]: id family
+redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+redis.call('SADD', KEYS[2], ARGV[3])
+if redis.call('PTTL', KEYS[2]) < tonumber(ARGV[2]) then
+    redis.call('PEXPIRE', KEYS[2], ARGV[2])
+end
+return 1
@@ -0,0 +1,19 @@
+-- KEYS[1]: family của token gửi lên, KEYS[2]: tập family của user
+-- ARGV[1]: jti client gửi lên, ARGV[2]: id family, ARGV[3]: prefix key family
+-- Trả về 1 đã thu hồi mọi family, 0 token cũ bị dùng lại (chỉ thu hồi family đó), -1 family không còn
+local current = redis.call('GET', KEYS[1])
+if not current then
+    return -1
+end
+if current ~= ARGV[1] then
+    redis.call('DEL', KEYS[1])
+    redis.call('SREM', KEYS[2], ARGV[2])
+    return 0
+end
+local families = redis.call('SMEMBERS', KEYS[2])
+for _, family in ipairs(families) do
+    redis.call('DEL', ARGV[3] .. family)
+end
+redis.call('DEL', KEYS[1])
+redis.call('DEL', KEYS[2])
+return 1
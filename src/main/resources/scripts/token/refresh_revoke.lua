@@ -0,0 +1,13 @@
+-- KEYS[1]: family, KEYS[2]: tập family của user
+-- ARGV[1]: jti client gửi lên, ARGV[2]: id family
+-- Trả về 1 đã thu hồi, 0 token cũ bị dùng lại (vẫn thu hồi cả family), -1 family không còn
+local current = redis.call('GET', KEYS[1])
+if not current then
+    return -1
+end
+redis.call('DEL', KEYS[1])
+redis.call('SREM', KEYS[2], ARGV[2])
+if current ~= ARGV[1] then
+    return 0
+end
+return 1
@@ -0,0 +1,8 @@
+-- KEYS[1]: tập family của user
+-- ARGV[1]: prefix key family. Trả về số family đã thu hồi
+local families = redis.call('SMEMBERS', KEYS[1])
+for _, family in ipairs(families) do
+    redis.call('DEL', ARGV[1] .. family)
+end
+redis.call('DEL', KEYS[1])
+return #families
@@ -0,0 +1,17 @@
+-- KEYS[1]: family, KEYS[2]: tập family của user
+-- ARGV[1]: jti client gửi lên, ARGV[2]: jti mới, ARGV[3]: thời gian sống (ms), ARGV[4]: id family
+-- Trả về 1 đã xoay vòng, 0 token cũ bị dùng lại (đã thu hồi cả family), -1 family không còn
+local current = redis.call('GET', KEYS[1])
+if not current then
+    return -1
+end
+if current ~= ARGV[1] then
+    redis.call('DEL', KEYS[1])
+    redis.call('SREM', KEYS[2], ARGV[4])
+    return 0
+end
+redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+if redis.call('PTTL', KEYS[2]) < tonumber(ARGV[3]) then
+    redis.call('PEXPIRE', KEYS[2], ARGV[3])
+end
+return 1
@@ -0,0 +1,6 @@
+-- KEYS[1]: key denylist, KEYS[2]: stream TOKEN_REVOCATIONS
+-- ARGV[1]: giá trị lưu, ARGV[2]: thời gian sống (ms), ARGV[3]: key trong Bloom filter,
+-- ARGV[4]: thời điểm hết hạn (epoch ms), ARGV[5]: MAXLEN xấp xỉ của stream
+redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+redis.call('XADD', KEYS[2], 'MAXLEN', '~', ARGV[5], '*', 'key', ARGV[3], 'exp', ARGV[4])
+return 1
@@ -0,0 +1,40 @@
+package iuh.fit.se.phazelsound.common.cache;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @ParameterizedTest
+    @CsvSource({"10000, 0.01", "10000, 0.001", "100000, 0.001", "100000, 0.0001"})
+    void falsePositiveRateStaysNearTargetForItsMemory(int insertions, double targetRate) {
+        BloomFilter filter = new BloomFilter(insertions, targetRate);
+        for (int i = 0; i < insertions; i++) {
+            filter.put("jti:" + new UUID(1, i));
+        }
+
+        for (int i = 0; i < insertions; i++) {
+            assertTrue(filter.mightContain("jti:" + new UUID(1, i)), "false negative");
+        }
+
+        int probes = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("jti:" + new UUID(2, i))) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        double bitsPerEntry = (double) filter.bitSize() / insertions;
+        double optimalBits = -Math.log(targetRate) / (Math.log(2) * Math.log(2));
+
+        assertTrue(rate <= targetRate * 1.5 + 1.0 / probes,
+                "rate " + rate + " vượt mục tiêu " + targetRate + " với " + bitsPerEntry + " bit/phần tử");
+        assertTrue(bitsPerEntry < optimalBits + 64.0 / insertions + 0.01,
+                bitsPerEntry + " bit/phần tử, tối ưu " + optimalBits);
+    }
+}
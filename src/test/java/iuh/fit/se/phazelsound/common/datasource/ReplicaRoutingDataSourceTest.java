@@ -0,0 +1,89 @@
+package iuh.fit.se.phazelsound.common.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection0 = mock(Connection.class);
+    private final Connection replicaConnection1 = mock(Connection.class);
+    private DataSource replica1;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource primary = mock(DataSource.class);
+        DataSource replica0 = mock(DataSource.class);
+        replica1 = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica0.getConnection()).thenReturn(replicaConnection0);
+        when(replica1.getConnection()).thenReturn(replicaConnection1);
+        when(replicaConnection0.isValid(anyInt())).thenReturn(true);
+        when(replicaConnection1.isValid(anyInt())).thenReturn(true);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        routing = new ReplicaRoutingDataSource(primary, replicas, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void writesGoToPrimaryAndReadOnlyRoundRobinsReplicas() throws SQLException {
+        assertSame(primaryConnection, routing.getConnection());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replicaConnection0, routing.getConnection());
+        assertSame(replicaConnection1, routing.getConnection());
+        assertSame(replicaConnection0, routing.getConnection());
+    }
+
+    @Test
+    void pinnedReadsStayOnPrimary() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Connection connection = ReplicaRoutingDataSource.onPrimary(() -> {
+            try {
+                return routing.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertSame(primaryConnection, connection);
+    }
+
+    @Test
+    void failsOverUntilHealthCheckSeesReplicaAgain() throws SQLException {
+        when(replica1.getConnection()).thenThrow(new SQLException("connection refused"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        for (int i = 0; i < 4; i++) {
+            assertSame(replicaConnection0, routing.getConnection());
+        }
+        assertEquals(List.of("replica-0"), routing.healthyReplicas());
+
+        doReturn(replicaConnection1).when(replica1).getConnection();
+        routing.checkReplicas();
+        assertEquals(List.of("replica-0", "replica-1"), routing.healthyReplicas());
+    }
+}
@@ -0,0 +1,76 @@
+package iuh.fit.se.phazelsound.common.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailBatchSenderTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private EmailBatchSender sender;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(greenMail.getSmtp().getPort());
+
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        OtpMailRenderer renderer = new OtpMailRenderer(templateEngine);
+        renderer.init();
+        meterRegistry = new SimpleMeterRegistry();
+        sender = new EmailBatchSender(mailSender, renderer, meterRegistry);
+    }
+
+    @Test
+    void sendsWholeBatchOverSmtp() throws Exception {
+        List<OutboxEmail> batch = List.of(
+                new OutboxEmail("1-0", EmailType.REGISTER_OTP, "a@phazel.dev", "An", "123456", 0),
+                new OutboxEmail("2-0", EmailType.FORGOT_PASSWORD_OTP, "b@phazel.dev", "Bình", "654321", 0),
+                new OutboxEmail("3-0", EmailType.REGISTER_OTP, "c@phazel.dev", "Chi", "000042", 0));
+
+        Map<OutboxEmail, Exception> failures = sender.send(batch);
+
+        assertTrue(failures.isEmpty());
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, received.length);
+        assertEquals(EmailType.FORGOT_PASSWORD_OTP.getSubject(), received[1].getSubject());
+    }
+
+    @Test
+    void reportsOnlyTheMessagesThatFailed() {
+        OutboxEmail invalid = new OutboxEmail("1-0", EmailType.REGISTER_OTP, "not an address", "An", "123456", 0);
+        OutboxEmail valid = new OutboxEmail("2-0", EmailType.REGISTER_OTP, "b@phazel.dev", "Bình", "654321", 0);
+
+        Map<OutboxEmail, Exception> failures = sender.send(List.of(invalid, valid));
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(invalid));
+        assertEquals(1, greenMail.getReceivedMessages().length);
+        assertEquals(1.0, meterRegistry.get("mail.failures").tag("stage", "render").tag("type", "register_otp")
+                .counter().count());
+        assertEquals(0.0, meterRegistry.get("mail.failures").tag("stage", "send").tag("type", "register_otp")
+                .counter().count());
+    }
+}
@@ -0,0 +1,73 @@
+package iuh.fit.se.phazelsound.common.mail;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxWorkerTest {
+
+    private final OutboxEmail sent = new OutboxEmail("1-0", EmailType.REGISTER_OTP, "a@phazel.dev", "An", "123456", 0);
+    private final OutboxEmail failed = new OutboxEmail("2-0", EmailType.REGISTER_OTP, "b@phazel.dev", "Bình", "654321", 4);
+
+    private EmailOutbox emailOutbox;
+    private EmailBatchSender sender;
+    private EmailOutboxWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        emailOutbox = mock(EmailOutbox.class);
+        sender = mock(EmailBatchSender.class);
+        worker = new EmailOutboxWorker(emailOutbox, sender);
+        ReflectionTestUtils.setField(worker, "batchSize", 50);
+        ReflectionTestUtils.setField(worker, "maxBatchesPerPoll", 1);
+        ReflectionTestUtils.setField(worker, "maxAttempts", 5);
+        ReflectionTestUtils.setField(worker, "retryBaseDelayMillis", 2_000L);
+        ReflectionTestUtils.setField(worker, "claimIdleMillis", 60_000L);
+    }
+
+    @Test
+    void acksDeliveredEmailsEvenWhenDeadLetteringFails() {
+        when(emailOutbox.read(anyString(), anyInt())).thenReturn(List.of(sent, failed));
+        when(sender.send(List.of(sent, failed))).thenReturn(Map.of(failed, new IllegalStateException("smtp down")));
+        doThrow(new QueryTimeoutException("redis timeout")).when(emailOutbox).deadLetter(any(), anyString());
+
+        worker.poll();
+
+        // Email đã gửi được ack; email chưa chuyển được sang DLQ giữ pending để claimStale nhận lại
+        verify(emailOutbox).complete(List.of(sent));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deadLetterDoesNotKeepTheOtp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        StreamOperations<String, Object, Object> streamOperations = mock(StreamOperations.class);
+        when(redisTemplate.<Object, Object>opsForStream()).thenReturn(streamOperations);
+        EmailOutbox outbox = new EmailOutbox(redisTemplate, JsonMapper.builder().build());
+
+        outbox.deadLetter(failed.nextAttempt(), "smtp down");
+
+        ArgumentCaptor<Map<String, String>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(streamOperations).add(eq(EmailOutbox.DEAD_LETTER_STREAM), fields.capture(), any());
+        assertEquals(OutboxEmail.REDACTED_OTP, fields.getValue().get("otp"));
+        assertEquals("b@phazel.dev", fields.getValue().get("to"));
+    }
+}
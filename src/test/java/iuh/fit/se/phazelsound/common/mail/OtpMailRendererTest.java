@@ -0,0 +1,39 @@
+package iuh.fit.se.phazelsound.common.mail;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OtpMailRendererTest {
+
+    private SpringTemplateEngine templateEngine;
+    private OtpMailRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        renderer = new OtpMailRenderer(templateEngine);
+        renderer.init();
+    }
+
+    @Test
+    void compiledTemplateMatchesThymeleafOutput() {
+        for (EmailType type : EmailType.values()) {
+            Context context = new Context();
+            context.setVariable("name", "Bình <b>&\"'");
+            context.setVariable("otp", "012345");
+
+            assertEquals(templateEngine.process(type.getTemplate(), context),
+                    renderer.render(type, "Bình <b>&\"'", "012345"));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package iuh.fit.se.phazelsound.config;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.github.fppt.jedismock.operations.server.MockExecutor;
+import com.github.fppt.jedismock.server.Response;
+import com.github.fppt.jedismock.server.ServiceOptions;
+import iuh.fit.se.phazelsound.common.mail.EmailOutbox;
+import iuh.fit.se.phazelsound.common.mail.EmailType;
+import iuh.fit.se.phazelsound.common.mail.OutboxEmail;
+import iuh.fit.se.phazelsound.modules.auth.entity.AuthProvider;
+import iuh.fit.se.phazelsound.modules.auth.entity.UserRole;
+import iuh.fit.se.phazelsound.modules.auth.service.OtpStore;
+import iuh.fit.se.phazelsound.modules.user.cache.ReadYourWritesTracker;
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import iuh.fit.se.phazelsound.modules.user.service.IdentifierResolver;
+import iuh.fit.se.phazelsound.modules.user.service.UserLookupService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Chạy các thao tác dùng {@code executePipelined} qua Lettuce tới một Redis giả lập trong process:
+ * connection trong pipeline là proxy, không ép kiểu được sang StringRedisConnection.
+ */
+class RedisPipelineTest {
+
+    private final List<String> commands = new CopyOnWriteArrayList<>();
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        redisServer = RedisServer.newRedisServer(0).setOptions(ServiceOptions.withInterceptor((state, name, params) -> {
+            commands.add(name.toLowerCase() + " " + params);
+            // jedis-mock chưa có XACK: trả về số id như Redis thật, XDEL vẫn chạy thật
+            if ("xack".equalsIgnoreCase(name)) {
+                return Response.integer(params.size() - 2);
+            }
+            return MockExecutor.proceed(state, name, params);
+        }));
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void evictAllWritesTombstonesAndPublishesInOnePipeline() {
+        ReadYourWritesTracker readYourWrites = new ReadYourWritesTracker();
+        ReflectionTestUtils.setField(readYourWrites, "windowMillis", 5_000L);
+        ReflectionTestUtils.setField(readYourWrites, "maxEntries", 100);
+        ReflectionTestUtils.invokeMethod(readYourWrites, "init");
+        UserLookupService lookupService = new UserLookupService(mock(UserRepository.class), redisTemplate,
+                mock(RedisMessageListenerContainer.class), JsonMapper.builder().build(),
+                mock(ApplicationEventPublisher.class), new IdentifierResolver(), readYourWrites, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(lookupService, "l1Size", 100);
+        ReflectionTestUtils.setField(lookupService, "l1TtlSeconds", 30L);
+        ReflectionTestUtils.setField(lookupService, "l2TtlSeconds", 60L);
+        ReflectionTestUtils.setField(lookupService, "tombstoneMillis", 10_000L);
+        ReflectionTestUtils.invokeMethod(lookupService, "init");
+
+        lookupService.evictAll(List.of(user("an@phazel.dev", "84901234567"), user("binh@phazel.dev", null)));
+
+        assertEquals("!", redisTemplate.opsForValue().get("USER_CACHE:an@phazel.dev"));
+        assertEquals("!", redisTemplate.opsForValue().get("USER_CACHE:84901234567"));
+        assertEquals("!", redisTemplate.opsForValue().get("USER_CACHE:binh@phazel.dev"));
+        assertTrue(redisTemplate.getExpire("USER_CACHE:an@phazel.dev") > 0);
+        assertEquals(2, commands.stream().filter(command -> command.startsWith("publish ")).count());
+    }
+
+    @Test
+    void completeAcksAndDeletesEntriesInOnePipeline() {
+        EmailOutbox outbox = new EmailOutbox(redisTemplate, JsonMapper.builder().build());
+        ReflectionTestUtils.setField(outbox, "maxLength", 1_000L);
+        outbox.enqueue(OutboxEmail.of(EmailType.REGISTER_OTP, "an@phazel.dev", "An", "123456"));
+        outbox.enqueue(OutboxEmail.of(EmailType.FORGOT_PASSWORD_OTP, "binh@phazel.dev", "Bình", "654321"));
+        List<OutboxEmail> emails = redisTemplate.<Object, Object>opsForStream()
+                .range(EmailOutbox.STREAM, Range.unbounded()).stream()
+                .map(record -> OutboxEmail.fromFields(record.getId().getValue(), ((MapRecord<?, ?, ?>) record).getValue()))
+                .toList();
+
+        outbox.complete(emails);
+
+        assertEquals(0L, redisTemplate.opsForStream().size(EmailOutbox.STREAM));
+        assertEquals(1, commands.stream().filter(command -> command.startsWith("xack ")).count());
+    }
+
+    @Test
+    void otpPendingAndDiscardRunThroughPipelines() {
+        for (boolean compact : new boolean[]{false, true}) {
+            OtpStore otpStore = new OtpStore(redisTemplate, new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(otpStore, "otpExpirationMinutes", 5L);
+            ReflectionTestUtils.setField(otpStore, "maxAttempts", 5);
+            ReflectionTestUtils.setField(otpStore, "compactLayout", compact);
+            ReflectionTestUtils.setField(otpStore, "compactBuckets", 4);
+            otpStore.issue(OtpStore.Purpose.REGISTER, "an@phazel.dev");
+            otpStore.issue(OtpStore.Purpose.REGISTER, "binh@phazel.dev");
+
+            assertEquals(Set.of("an@phazel.dev", "binh@phazel.dev"), otpStore.pending(OtpStore.Purpose.REGISTER,
+                    List.of("an@phazel.dev", "binh@phazel.dev", "chi@phazel.dev")));
+
+            otpStore.discard(OtpStore.Purpose.REGISTER, List.of("an@phazel.dev"));
+
+            assertEquals(Set.of("binh@phazel.dev"), otpStore.pending(OtpStore.Purpose.REGISTER,
+                    List.of("an@phazel.dev", "binh@phazel.dev")));
+        }
+    }
+
+    private static User user(String email, String phone) {
+        return User.builder()
+                .id(UUID.randomUUID())
+                .email(email)
+                .phone(phone)
+                .fullName("An")
+                .role(UserRole.USER)
+                .status(UserStatus.ACTIVE)
+                .provider(AuthProvider.LOCAL)
+                .build();
+    }
+}
@@ -0,0 +1,76 @@
+package iuh.fit.se.phazelsound.modules.auth.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SigningKeyRingTest {
+
+    private final Map<Object, Object> published = new HashMap<>();
+    private HashOperations<String, Object, Object> hashOperations;
+    private SigningKeyRing keyRing;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(any())).thenAnswer(invocation -> Map.copyOf(published));
+
+        keyRing = new SigningKeyRing(redisTemplate, JsonMapper.builder().build());
+        ReflectionTestUtils.setField(keyRing, "rotationIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(keyRing, "keySize", 2048);
+        ReflectionTestUtils.setField(keyRing, "maxTokenLifetimeMillis", 600_000L);
+        ReflectionTestUtils.setField(keyRing, "unknownKidReloadMillis", 5_000L);
+        ReflectionTestUtils.invokeMethod(keyRing, "init");
+        clearInvocations(hashOperations);
+    }
+
+    @Test
+    void unknownKidDoesNotBlockKeyPublishedByAnotherNode() throws Exception {
+        assertNull(keyRing.verificationKey("garbage"));
+
+        // Node khác vừa khởi động và công bố khoá ngay sau đó
+        RSAPublicKey otherNode = publishKey("other-node");
+
+        assertEquals(otherNode, keyRing.verificationKey("other-node"));
+        verify(hashOperations, times(2)).entries(SigningKeyRing.PUBLIC_KEYS);
+    }
+
+    @Test
+    void sameUnknownKidIsNotReloadedAgainWithinTheThrottleWindow() {
+        for (int i = 0; i < 100; i++) {
+            assertNull(keyRing.verificationKey("garbage"));
+        }
+
+        verify(hashOperations, times(1)).entries(SigningKeyRing.PUBLIC_KEYS);
+    }
+
+    private RSAPublicKey publishKey(String kid) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        RSAPublicKey publicKey = (RSAPublicKey) generator.generateKeyPair().getPublic();
+        published.put(kid, (System.currentTimeMillis() + 600_000L) + "|"
+                + Base64.getEncoder().encodeToString(publicKey.getEncoded()));
+        return publicKey;
+    }
+}
@@ -0,0 +1,32 @@
+package iuh.fit.se.phazelsound.modules.auth.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenRevocationServiceTest {
+
+    @Test
+    void revokesTokensIssuedInTheSameSecondAsTheCutoff() {
+        long revokedAt = 1_700_000_012_300L;
+
+        // Token phát hành ngay trước logout-all, cùng giây với mốc
+        assertTrue(TokenRevocationService.issuedBefore(new Date(1_700_000_012_000L), revokedAt));
+        assertTrue(TokenRevocationService.issuedBefore(new Date(1_700_000_011_999L), revokedAt));
+        // Login lại ngay sau khi đổi mật khẩu (giây kế tiếp) phải còn dùng được
+        assertFalse(TokenRevocationService.issuedBefore(new Date(1_700_000_013_000L), revokedAt));
+        assertFalse(TokenRevocationService.issuedBefore(new Date(1_700_000_013_999L), revokedAt));
+        assertFalse(TokenRevocationService.issuedBefore(null, revokedAt));
+    }
+
+    @Test
+    void exactSecondCutoffDoesNotReachIntoTheNextSecond() {
+        long revokedAt = 1_700_000_012_000L;
+
+        assertTrue(TokenRevocationService.issuedBefore(new Date(1_700_000_012_000L), revokedAt));
+        assertFalse(TokenRevocationService.issuedBefore(new Date(1_700_000_013_000L), revokedAt));
+    }
+}
@@ -0,0 +1,106 @@
+package iuh.fit.se.phazelsound.modules.auth.service;
+
+import iuh.fit.se.phazelsound.modules.auth.security.SigningKeyRing;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "and0LXNlcnZpY2UtdGVzdC1zZWNyZXQta2V5LWZvci1oczI1Ni1zaWduaW5n";
+
+    private SigningKeyRing keyRing;
+    private JwtService jwtService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(any())).thenReturn(Map.of());
+
+        keyRing = new SigningKeyRing(redisTemplate, JsonMapper.builder().build());
+        ReflectionTestUtils.setField(keyRing, "rotationIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(keyRing, "keySize", 2048);
+        ReflectionTestUtils.setField(keyRing, "maxTokenLifetimeMillis", 600_000L);
+        ReflectionTestUtils.setField(keyRing, "unknownKidReloadMillis", 5_000L);
+        ReflectionTestUtils.invokeMethod(keyRing, "init");
+
+        jwtService = new JwtService(keyRing, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "signingAlgorithm", "RS256");
+        ReflectionTestUtils.setField(jwtService, "acceptHs256", true);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 600_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 16);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+    }
+
+    @Test
+    void tokensSignedBeforeRotationStillVerify() {
+        String before = jwtService.generateRefreshToken("a@phazel.dev", UUID.randomUUID(), "f", "j1");
+        String oldKid = keyRing.signingKey().kid();
+
+        keyRing.rotate();
+        String after = jwtService.generateRefreshToken("b@phazel.dev", UUID.randomUUID(), "f", "j2");
+
+        assertEquals("a@phazel.dev", jwtService.parseToken(before).getSubject());
+        assertEquals("b@phazel.dev", jwtService.parseToken(after).getSubject());
+        assertTrue(keyRing.jwks().json().contains(oldKid));
+        assertTrue(keyRing.jwks().json().contains(keyRing.signingKey().kid()));
+    }
+
+    @Test
+    void legacyHs256TokensAreStillAccepted() {
+        String legacy = Jwts.builder()
+                .setSubject("legacy@phazel.dev")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        Claims claims = jwtService.parseToken(legacy);
+
+        assertEquals("legacy@phazel.dev", claims.getSubject());
+    }
+
+    @Test
+    void onlyAccessTokensAndShortLivedLegacyTokensAreBearerTokens() {
+        String refresh = jwtService.generateRefreshToken("a@phazel.dev", UUID.randomUUID(), "f", "j1");
+        long now = System.currentTimeMillis();
+
+        assertFalse(jwtService.isAccessToken(jwtService.parseToken(refresh)));
+        assertTrue(jwtService.isAccessToken(jwtService.parseToken(legacyToken(now, 60_000))));
+        // Refresh token HS256 cũ không có typ, nhận ra qua thời hạn
+        assertFalse(jwtService.isAccessToken(jwtService.parseToken(legacyToken(now, 600_000))));
+    }
+
+    private static String legacyToken(long issuedAt, long lifetime) {
+        return Jwts.builder()
+                .setSubject("legacy@phazel.dev")
+                .setIssuedAt(new Date(issuedAt))
+                .setExpiration(new Date(issuedAt + lifetime))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
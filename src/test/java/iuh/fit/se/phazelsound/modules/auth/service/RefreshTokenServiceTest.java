@@ -0,0 +1,89 @@
+package iuh.fit.se.phazelsound.modules.auth.service;
+
+import com.github.fppt.jedismock.RedisServer;
+import iuh.fit.se.phazelsound.modules.auth.security.SigningKeyRing;
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class RefreshTokenServiceTest {
+
+    private static final String SECRET = "and0LXNlcnZpY2UtdGVzdC1zZWNyZXQta2V5LWZvci1oczI1Ni1zaWduaW5n";
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RefreshTokenService refreshTokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        redisServer = RedisServer.newRedisServer(0).start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        JwtService jwtService = new JwtService(mock(SigningKeyRing.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "signingAlgorithm", "HS256");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 600_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 16);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        refreshTokenService = new RefreshTokenService(new StringRedisTemplate(connectionFactory), jwtService);
+        user = User.builder().id(UUID.randomUUID()).email("an@phazel.dev").build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void staleTokenCannotLogOutOtherDevices() {
+        String stale = refreshTokenService.issue(user);
+        String current = refreshTokenService.rotate(stale).refreshToken();
+        String otherDevice = refreshTokenService.issue(user);
+
+        assertThrows(RuntimeException.class, () -> refreshTokenService.revokeAll(stale));
+
+        // Token cũ bị coi là dùng lại: family của nó bị thu hồi, thiết bị khác vẫn còn phiên
+        assertThrows(RuntimeException.class, () -> refreshTokenService.rotate(current));
+        refreshTokenService.rotate(otherDevice);
+    }
+
+    @Test
+    void currentTokenLogsOutEveryDevice() {
+        String current = refreshTokenService.issue(user);
+        String otherDevice = refreshTokenService.issue(user);
+
+        assertEquals(user.getId(), refreshTokenService.revokeAll(current));
+
+        assertThrows(RuntimeException.class, () -> refreshTokenService.rotate(otherDevice));
+    }
+
+    @Test
+    void staleTokenLogoutIsRejectedButStillRevokesItsFamily() {
+        String stale = refreshTokenService.issue(user);
+        String current = refreshTokenService.rotate(stale).refreshToken();
+
+        assertThrows(RuntimeException.class, () -> refreshTokenService.revoke(stale));
+
+        assertThrows(RuntimeException.class, () -> refreshTokenService.rotate(current));
+    }
+}
@@ -0,0 +1,126 @@
+package iuh.fit.se.phazelsound.modules.auth.service.impl;
+
+import iuh.fit.se.phazelsound.common.service.EmailService;
+import iuh.fit.se.phazelsound.modules.auth.dto.request.RegisterUserRequest;
+import iuh.fit.se.phazelsound.modules.auth.service.AuthService;
+import iuh.fit.se.phazelsound.modules.auth.service.OtpStore;
+import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Load test đăng ký trùng đồng thời trên Postgres thật: chỉ đúng một request được insert,
+ * các request còn lại nhận lại thông báo trùng cũ. Chỉ chạy khi có DB_URL.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+class ConcurrentRegisterTest {
+
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @MockitoBean
+    private OtpStore otpStore;
+
+    private final List<String> createdEmails = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (String email : createdEmails) {
+            userRepository.findByEmail(email).ifPresent(userRepository::delete);
+        }
+    }
+
+    @Test
+    void concurrentDuplicateEmailInsertsExactlyOnce() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            String email = "dup-" + UUID.randomUUID() + "@phazel.dev";
+            createdEmails.add(email);
+
+            Map<String, AtomicInteger> outcomes = race(i -> request(email, null));
+
+            assertEquals(1, outcomes.get("ok").get());
+            assertEquals(THREADS - 1, outcomes.get("Email already exist!").get());
+        }
+    }
+
+    @Test
+    void concurrentDuplicatePhoneInsertsExactlyOnce() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            String phone = "+849" + String.format("%08d", Math.floorMod(UUID.randomUUID().hashCode(), 100_000_000));
+            List<String> emails = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                emails.add("dup-phone-" + UUID.randomUUID() + "@phazel.dev");
+            }
+            createdEmails.addAll(emails);
+
+            Map<String, AtomicInteger> outcomes = race(i -> request(emails.get(i), phone));
+
+            assertEquals(1, outcomes.get("ok").get());
+            assertEquals(THREADS - 1, outcomes.get("Phone number already exist!").get());
+        }
+    }
+
+    private Map<String, AtomicInteger> race(IntFunction<RegisterUserRequest> requests) throws Exception {
+        Map<String, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+        outcomes.put("ok", new AtomicInteger());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                RegisterUserRequest request = requests.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    String outcome;
+                    try {
+                        authService.register(request);
+                        outcome = "ok";
+                    } catch (RuntimeException e) {
+                        outcome = e.getMessage();
+                    }
+                    outcomes.computeIfAbsent(outcome, key -> new AtomicInteger()).incrementAndGet();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return outcomes;
+    }
+
+    private static RegisterUserRequest request(String email, String phone) {
+        return new RegisterUserRequest("Load Test", email, phone, "secret123");
+    }
+}
@@ -0,0 +1,57 @@
+package iuh.fit.se.phazelsound.modules.user.repository;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chặn regression về query plan của các câu tra user khi login: mỗi câu phải dùng được index.
+ * Tắt seq scan để planner chỉ chọn seq scan khi không có index nào dùng được (bảng test thường rất nhỏ).
+ * Chỉ chạy khi có DB_URL.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+class UserLookupPlanTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"email", "phone"})
+    void lookupByIdentifierUsesAnIndex(String column) {
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("set enable_seqscan = off");
+            }
+            StringBuilder lines = new StringBuilder();
+            try (PreparedStatement explain = connection.prepareStatement(
+                    "explain select * from users where " + column + " = ?")) {
+                explain.setString(1, "plan-check");
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        lines.append(rows.getString(1)).append('\n');
+                    }
+                }
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("reset enable_seqscan");
+                }
+            }
+            return lines.toString();
+        });
+
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertTrue(plan.contains("Index"), plan);
+    }
+}
@@ -0,0 +1,30 @@
+package iuh.fit.se.phazelsound.modules.user.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IdentifierResolverTest {
+
+    private final IdentifierResolver resolver = new IdentifierResolver();
+
+    @ParameterizedTest
+    @CsvSource({
+            "'  An.Nguyen@Phazel.DEV ', EMAIL, an.nguyen@phazel.dev",
+            "0912345678, PHONE, +84912345678",
+            "'0912 345 678', PHONE, +84912345678",
+            "+84 912-345-678, PHONE, +84912345678",
+            "0084912345678, PHONE, +84912345678",
+            "84912345678, PHONE, +84912345678",
+            "+14155550100, PHONE, +14155550100",
+            "not-a-phone, EMAIL, not-a-phone",
+            "12345, EMAIL, 12345"
+    })
+    void resolvesToOneNormalizedColumn(String raw, IdentifierResolver.Type type, String value) {
+        IdentifierResolver.Identifier identifier = resolver.resolve(raw);
+
+        assertEquals(type, identifier.type());
+        assertEquals(value, identifier.value());
+    }
+}
@@ -0,0 +1,102 @@
+package iuh.fit.se.phazelsound.modules.user.service;
+
+import iuh.fit.se.phazelsound.common.lock.RedisLock;
+import iuh.fit.se.phazelsound.modules.auth.service.OtpStore;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import iuh.fit.se.phazelsound.modules.user.repository.PurgeCandidate;
+import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UnverifiedUserPurgeJobTest {
+
+    private UserRepository userRepository;
+    private UserLookupService userLookupService;
+    private OtpStore otpStore;
+    private RedisLock redisLock;
+    private SimpleMeterRegistry meterRegistry;
+    private UnverifiedUserPurgeJob job;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userLookupService = mock(UserLookupService.class);
+        otpStore = mock(OtpStore.class);
+        redisLock = mock(RedisLock.class);
+        meterRegistry = new SimpleMeterRegistry();
+        job = new UnverifiedUserPurgeJob(userRepository, userLookupService, otpStore, redisLock, meterRegistry);
+        ReflectionTestUtils.setField(job, "enabled", true);
+        ReflectionTestUtils.setField(job, "otpExpirationMinutes", 5L);
+        ReflectionTestUtils.setField(job, "graceMinutes", 60L);
+        ReflectionTestUtils.setField(job, "batchSize", 2);
+        ReflectionTestUtils.setField(job, "batchPauseMillis", 0L);
+        ReflectionTestUtils.setField(job, "maxRunMillis", 60_000L);
+        ReflectionTestUtils.setField(job, "lockTtlMillis", 120_000L);
+    }
+
+    @Test
+    void walksBatchesByKeysetAndRecordsRowsPerRun() {
+        LocalDateTime t = LocalDateTime.of(2026, 1, 1, 0, 0);
+        PurgeCandidate a = new PurgeCandidate(UUID.randomUUID(), "a@phazel.dev", null, t);
+        PurgeCandidate b = new PurgeCandidate(UUID.randomUUID(), "b@phazel.dev", "+84901234567", t.plusSeconds(1));
+        PurgeCandidate c = new PurgeCandidate(UUID.randomUUID(), "c@phazel.dev", null, t.plusSeconds(2));
+        when(redisLock.tryLock(any(), any())).thenReturn("token");
+        when(userRepository.findPurgeCandidates(any(), eq(LocalDateTime.of(1970, 1, 1, 0, 0)), eq(new UUID(0, 0)),
+                eq(Limit.of(2)))).thenReturn(List.of(a, b));
+        when(userRepository.findPurgeCandidates(any(), eq(b.createdAt()), eq(b.id()), eq(Limit.of(2))))
+                .thenReturn(List.of(c));
+        when(userRepository.deleteByIdInAndStatus(anyCollection(), eq(UserStatus.UNVERIFIED))).thenReturn(2, 1);
+
+        job.purge();
+
+        verify(userRepository, times(2)).deleteByIdInAndStatus(anyCollection(), eq(UserStatus.UNVERIFIED));
+        verify(userLookupService, times(2)).evictAll(any());
+        verify(redisLock).unlock(any(), eq("token"));
+        assertEquals(3.0, meterRegistry.get("users.purge.deleted").summary().totalAmount());
+    }
+
+    @Test
+    void keepsAccountsThatStillHaveALiveRegisterOtp() {
+        LocalDateTime t = LocalDateTime.of(2026, 1, 1, 0, 0);
+        PurgeCandidate resent = new PurgeCandidate(UUID.randomUUID(), "a@phazel.dev", null, t);
+        PurgeCandidate stale = new PurgeCandidate(UUID.randomUUID(), "b@phazel.dev", null, t.plusSeconds(1));
+        when(userRepository.findPurgeCandidates(any(), eq(LocalDateTime.of(1970, 1, 1, 0, 0)), eq(new UUID(0, 0)),
+                eq(Limit.of(2)))).thenReturn(List.of(resent, stale));
+        when(otpStore.pending(OtpStore.Purpose.REGISTER, List.of("a@phazel.dev", "b@phazel.dev")))
+                .thenReturn(Set.of("a@phazel.dev"));
+        when(userRepository.deleteByIdInAndStatus(anyCollection(), eq(UserStatus.UNVERIFIED))).thenReturn(1);
+
+        assertEquals(1, job.purgeBatches());
+
+        verify(userRepository).deleteByIdInAndStatus(List.of(stale.id()), UserStatus.UNVERIFIED);
+        verify(otpStore).discard(OtpStore.Purpose.REGISTER, List.of("b@phazel.dev"));
+    }
+
+    @Test
+    void skipsRunWhenAnotherNodeHoldsTheLock() {
+        when(redisLock.tryLock(any(), any())).thenReturn(null);
+
+        job.purge();
+
+        verify(userRepository, never()).findPurgeCandidates(any(), any(), any(), any());
+        verify(redisLock, never()).unlock(any(), any());
+    }
+}
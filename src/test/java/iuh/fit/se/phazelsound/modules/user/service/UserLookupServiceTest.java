@@ -0,0 +1,138 @@
+package iuh.fit.se.phazelsound.modules.user.service;
+
+import iuh.fit.se.phazelsound.modules.auth.entity.AuthProvider;
+import iuh.fit.se.phazelsound.modules.auth.entity.UserRole;
+import iuh.fit.se.phazelsound.modules.user.cache.ReadYourWritesTracker;
+import iuh.fit.se.phazelsound.modules.user.cache.UserSnapshot;
+import iuh.fit.se.phazelsound.modules.user.entity.User;
+import iuh.fit.se.phazelsound.modules.user.entity.UserStatus;
+import iuh.fit.se.phazelsound.modules.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserLookupServiceTest {
+
+    private static final String EMAIL = "an@phazel.dev";
+    private static final String KEY = "USER_CACHE:" + EMAIL;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private UserRepository userRepository;
+    private StringRedisTemplate redisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private UserLookupService lookupService;
+    private User user;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        ReadYourWritesTracker readYourWrites = new ReadYourWritesTracker();
+        ReflectionTestUtils.setField(readYourWrites, "windowMillis", 5_000L);
+        ReflectionTestUtils.setField(readYourWrites, "maxEntries", 100);
+        ReflectionTestUtils.invokeMethod(readYourWrites, "init");
+
+        lookupService = new UserLookupService(userRepository, redisTemplate, mock(RedisMessageListenerContainer.class),
+                jsonMapper, mock(ApplicationEventPublisher.class), new IdentifierResolver(), readYourWrites,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(lookupService, "l1Size", 100);
+        ReflectionTestUtils.setField(lookupService, "l1TtlSeconds", 30L);
+        ReflectionTestUtils.setField(lookupService, "l2TtlSeconds", 60L);
+        ReflectionTestUtils.setField(lookupService, "tombstoneMillis", 10_000L);
+        ReflectionTestUtils.invokeMethod(lookupService, "init");
+
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .email(EMAIL)
+                .password("$2a$10$hash")
+                .fullName("An")
+                .role(UserRole.USER)
+                .status(UserStatus.ACTIVE)
+                .provider(AuthProvider.LOCAL)
+                .build();
+    }
+
+    @Test
+    void writesL2WithoutPasswordAndOnlyIfAbsent() {
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        assertEquals("$2a$10$hash", lookupService.findByEmailOrPhone(EMAIL).orElseThrow().getPassword());
+
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).setIfAbsent(eq(KEY), json.capture(), eq(Duration.ofSeconds(60)));
+        assertNull(jsonMapper.readValue(json.getValue(), UserSnapshot.class).password());
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void loadsPasswordByIdOnlyOnAuthenticationPath() {
+        when(valueOperations.get(KEY))
+                .thenReturn(jsonMapper.writeValueAsString(UserSnapshot.of(user).withoutPassword()));
+        when(userRepository.findPasswordById(user.getId())).thenReturn(Optional.of("$2a$10$hash"));
+
+        assertNull(lookupService.findByEmail(EMAIL).orElseThrow().getPassword());
+        assertEquals("$2a$10$hash", lookupService.findByEmailOrPhone(EMAIL).orElseThrow().getPassword());
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void dropsUnreadableL2EntryAndFallsBackToDatabase() {
+        when(valueOperations.get(KEY)).thenReturn("{\"id\":");
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        assertEquals(user.getId(), lookupService.findByEmail(EMAIL).orElseThrow().getId());
+        verify(redisTemplate).delete(KEY);
+    }
+
+    @Test
+    void tombstoneCountsAsMiss() {
+        when(valueOperations.get(KEY)).thenReturn("!");
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.empty());
+
+        assertFalse(lookupService.findByEmail(EMAIL).isPresent());
+        verify(userRepository).findByEmail(EMAIL);
+    }
+
+    @Test
+    void loadThatStartedBeforeEvictionIsNotKeptInL1() {
+        User stale = UserSnapshot.of(user).toUser();
+        when(userRepository.findByEmail(EMAIL)).thenAnswer(invocation -> {
+            // resetPassword chạy xong (và evict) trong lúc lần nạp này còn đang đọc DB
+            lookupService.evict(user);
+            return Optional.of(stale);
+        }).thenReturn(Optional.of(user));
+
+        lookupService.findByEmail(EMAIL);
+        lookupService.findByEmail(EMAIL);
+        lookupService.findByEmail(EMAIL);
+
+        verify(userRepository, times(2)).findByEmail(EMAIL);
+    }
+}